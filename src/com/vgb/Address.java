@@ -1,10 +1,12 @@
 package com.vgb;
 
+import java.io.IOException;
+
 public class Address {
-    private String street;
-    private String city;
-    private String state;
-    private String zip;
+    private final String street;
+    private final String city;
+    private final String state;
+    private final String zip;
 
     public Address(String street, String city, String state, String zip) {
         this.street = street;
@@ -29,9 +31,14 @@ public class Address {
         return zip;
     }
     
+    /** Writes the street, then "city, state zip" on a second line. */
+    public void writeTo(ReportWriter out) throws IOException {
+        out.append(street).newLine()
+           .append(city).append(", ").append(state).append(' ').append(zip);
+    }
+
     @Override
     public String toString() {
-        return String.format("%s\n%s, %s %s",
-                street, city, state, zip);
+        return ReportWriter.render(this::writeTo);
     }
 }
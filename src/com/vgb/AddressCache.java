@@ -0,0 +1,197 @@
+// AddressCache.java
+package com.vgb;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Write-through cache of the State, ZipCode and Address rows known to exist
+ * in the database. Once a state code, zip code or address has been written
+ * or read, later companies at the same address resolve its id without
+ * another round trip.
+ *
+ * The cache only ever records rows that exist, so a miss falls back to the
+ * database and a stale entry can only arise from rows deleted behind its
+ * back; call {@link #clear()} after such deletes.
+ */
+public class AddressCache {
+    private static final Logger log = LogManager.getLogger(AddressCache.class);
+
+    /** Inserts a state if missing; shared with {@link BulkImport}. */
+    static final String STATE_UPSERT_SQL =
+        "INSERT INTO State(stateCode, name) VALUES(?, ?) ON DUPLICATE KEY UPDATE stateCode = stateCode";
+    /** Inserts a zip code if missing; shared with {@link BulkImport}. */
+    static final String ZIP_UPSERT_SQL =
+        "INSERT INTO ZipCode(zipCode, city) VALUES(?, ?) ON DUPLICATE KEY UPDATE zipCode = zipCode";
+    private static final String ADDRESS_LOOKUP_SQL =
+        "SELECT id FROM Address WHERE street=? AND city=? AND stateCode=? AND zipCode=?";
+    private static final String ADDRESS_INSERT_SQL =
+        "INSERT INTO Address(street, city, stateCode, zipCode) VALUES(?, ?, ?, ?)";
+
+    private final Set<String> states = ConcurrentHashMap.newKeySet();
+    private final Set<String> zipCodes = ConcurrentHashMap.newKeySet();
+    private final Map<AddressKey, Integer> addressIds = new ConcurrentHashMap<>();
+
+    /**
+     * Ensures a State row exists, upserting it on a cache miss.
+     */
+    public void ensureState(Connection conn, String stateCode, String stateName) throws SQLException {
+        if (states.contains(stateCode)) {
+            return;
+        }
+        try (PreparedStatement ps = conn.prepareStatement(STATE_UPSERT_SQL)) {
+            ps.setString(1, stateCode);
+            ps.setString(2, stateName);
+            ps.executeUpdate();
+        }
+        states.add(stateCode);
+        log.debug("Ensured State {}", stateCode);
+    }
+
+    /**
+     * Ensures a ZipCode row exists, upserting it on a cache miss.
+     */
+    public void ensureZipCode(Connection conn, String zipCode, String city) throws SQLException {
+        if (zipCodes.contains(zipCode)) {
+            return;
+        }
+        try (PreparedStatement ps = conn.prepareStatement(ZIP_UPSERT_SQL)) {
+            ps.setString(1, zipCode);
+            ps.setString(2, city);
+            ps.executeUpdate();
+        }
+        zipCodes.add(zipCode);
+        log.debug("Ensured ZipCode {}", zipCode);
+    }
+
+    /**
+     * Returns the id of the matching Address row, creating the address (and
+     * the State and ZipCode it references) if the database has none.
+     *
+     * @return the address id, or -1 if the database did not return one
+     */
+    public int resolveAddressId(Connection conn, String street, String city,
+                                String stateCode, String zipCode) throws SQLException {
+        AddressKey key = new AddressKey(street, city, stateCode, zipCode);
+        Integer cached = addressIds.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        ensureState(conn, stateCode, stateCode);  // using code as placeholder name
+        ensureZipCode(conn, zipCode, city);
+
+        int addressId = -1;
+        try (PreparedStatement lookup = conn.prepareStatement(ADDRESS_LOOKUP_SQL)) {
+            lookup.setString(1, street);
+            lookup.setString(2, city);
+            lookup.setString(3, stateCode);
+            lookup.setString(4, zipCode);
+            try (ResultSet rs = lookup.executeQuery()) {
+                if (rs.next()) {
+                    addressId = rs.getInt("id");
+                    log.debug("Found existing Address id={}", addressId);
+                }
+            }
+        }
+
+        if (addressId < 0) {
+            try (PreparedStatement insert = conn.prepareStatement(ADDRESS_INSERT_SQL,
+                     Statement.RETURN_GENERATED_KEYS)) {
+                insert.setString(1, street);
+                insert.setString(2, city);
+                insert.setString(3, stateCode);
+                insert.setString(4, zipCode);
+                insert.executeUpdate();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        addressId = keys.getInt(1);
+                        log.debug("Inserted new Address id={}", addressId);
+                    }
+                }
+            }
+        }
+
+        if (addressId >= 0) {
+            addressIds.put(key, addressId);
+        }
+        return addressId;
+    }
+
+    /**
+     * Loads every existing state code, zip code and address id so that a
+     * bulk onboarding run never misses on rows already in the database.
+     */
+    public void prewarm(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT stateCode FROM State")) {
+                while (rs.next()) {
+                    states.add(rs.getString(1));
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT zipCode FROM ZipCode")) {
+                while (rs.next()) {
+                    zipCodes.add(rs.getString(1));
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT id, street, city, stateCode, zipCode FROM Address")) {
+                while (rs.next()) {
+                    addressIds.putIfAbsent(new AddressKey(rs.getString("street"), rs.getString("city"),
+                            rs.getString("stateCode"), rs.getString("zipCode")), rs.getInt("id"));
+                }
+            }
+        }
+        log.info("Address cache warmed: {} states, {} zip codes, {} addresses",
+                states.size(), zipCodes.size(), addressIds.size());
+    }
+
+    /** Forgets everything cached. */
+    public void clear() {
+        states.clear();
+        zipCodes.clear();
+        addressIds.clear();
+    }
+
+    /** The columns that identify an Address row. */
+    private static class AddressKey {
+        private final String street;
+        private final String city;
+        private final String state;
+        private final String zip;
+
+        AddressKey(String street, String city, String state, String zip) {
+            this.street = street;
+            this.city = city;
+            this.state = state;
+            this.zip = zip;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof AddressKey)) {
+                return false;
+            }
+            AddressKey other = (AddressKey) o;
+            return Objects.equals(street, other.street) && Objects.equals(city, other.city)
+                    && Objects.equals(state, other.state) && Objects.equals(zip, other.zip);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(street, city, state, zip);
+        }
+    }
+}
@@ -0,0 +1,428 @@
+// BulkImport.java
+package com.vgb;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A bulk-import session over a single connection. Rows are sent with JDBC
+ * batches of {@code batchSize} rows instead of one executeUpdate per row.
+ *
+ * In per-batch mode every batch is its own transaction: a batch that fails
+ * is rolled back, recorded in {@link #getFailures()}, and the import carries
+ * on with the next batch. In single-transaction mode everything is committed
+ * together by {@link #commit()}; the first failure rolls the whole import
+ * back and the session refuses further rows. A batch also fails if any of
+ * its rows was not inserted, e.g. a company whose address row is missing.
+ *
+ * Obtain a session from {@link InvoiceData#openBulkImport(int, boolean)}.
+ */
+public class BulkImport implements AutoCloseable {
+    private static final Logger log = LogManager.getLogger(BulkImport.class);
+
+    private static final String PERSON_SQL =
+        "INSERT INTO Person(uuid, firstName, lastName, phone) VALUES (?, ?, ?, ?)";
+    private static final String EMAIL_SQL =
+        "INSERT INTO Email(emailAddress, personUuid) VALUES (?, ?)";
+    private static final String ADDRESS_SQL =
+        "INSERT INTO Address(street, city, stateCode, zipCode) "
+      + "SELECT ?, ?, ?, ? FROM DUAL WHERE NOT EXISTS "
+      + "(SELECT 1 FROM Address WHERE street=? AND city=? AND stateCode=? AND zipCode=?)";
+    private static final String COMPANY_SQL =
+        "INSERT INTO Company(uuid, contactUuid, name, addressId) "
+      + "SELECT ?, ?, ?, id FROM Address WHERE street=? AND city=? AND stateCode=? AND zipCode=? LIMIT 1";
+    private static final String ITEM_SQL =
+        "INSERT INTO Item(uuid, type, name, field1, field2, field3) VALUES(?, ?, ?, ?, ?, NULL)";
+    private static final String INVOICE_SQL =
+        "INSERT INTO Invoice(uuid, customerUuid, salesPersonUuid, date) VALUES(?, ?, ?, ?)";
+    private static final String INVOICE_ITEM_SQL =
+        "INSERT INTO InvoiceItems(invoiceUuid, itemUuid, field1, field2, field3) VALUES(?, ?, ?, ?, ?)";
+
+    private final Connection conn;
+    private final int batchSize;
+    private final boolean commitPerBatch;
+    private final List<BatchFailure> failures = new ArrayList<>();
+    private long imported;
+    private boolean aborted;
+    private boolean closed;
+
+    /**
+     * @param conn           connection the session owns and closes
+     * @param batchSize      rows per executeBatch
+     * @param commitPerBatch true to commit after every batch, false for a
+     *                       single transaction committed by {@link #commit()}
+     * @throws SQLException if auto-commit cannot be disabled
+     */
+    public BulkImport(Connection conn, int batchSize, boolean commitPerBatch) throws SQLException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.conn = conn;
+        this.batchSize = batchSize;
+        this.commitPerBatch = commitPerBatch;
+        conn.setAutoCommit(false);
+    }
+
+    /** Inserts persons along with their email addresses. */
+    public void addPersons(Stream<Person> persons) {
+        importRows("Person", persons.iterator(), chunk -> {
+            try (PreparedStatement person = conn.prepareStatement(PERSON_SQL);
+                 PreparedStatement email = conn.prepareStatement(EMAIL_SQL)) {
+                for (Person p : chunk) {
+                    person.setString(1, p.getUuid().toString());
+                    person.setString(2, p.getFirstName());
+                    person.setString(3, p.getLastName());
+                    person.setString(4, p.getPhone());
+                    person.addBatch();
+                    for (String address : p.getEmails()) {
+                        email.setString(1, address);
+                        email.setString(2, p.getUuid().toString());
+                        email.addBatch();
+                    }
+                }
+                requireInserted("Person", chunk, person.executeBatch(), p -> p.getUuid().toString());
+                email.executeBatch();
+            }
+        });
+    }
+
+    public void addPersons(Iterable<Person> persons) {
+        addPersons(stream(persons));
+    }
+
+    /**
+     * Inserts companies, first seeding the State, ZipCode and Address rows
+     * their addresses need. Existing states, zip codes and addresses are reused.
+     */
+    public void addCompanies(Stream<Company> companies) {
+        importRows("Company", companies.iterator(), chunk -> {
+            try (PreparedStatement state = conn.prepareStatement(AddressCache.STATE_UPSERT_SQL);
+                 PreparedStatement zip = conn.prepareStatement(AddressCache.ZIP_UPSERT_SQL);
+                 PreparedStatement address = conn.prepareStatement(ADDRESS_SQL);
+                 PreparedStatement company = conn.prepareStatement(COMPANY_SQL)) {
+                for (Company c : chunk) {
+                    Address a = c.getAddress();
+                    state.setString(1, a.getState());
+                    state.setString(2, a.getState()); // using code as placeholder name
+                    state.addBatch();
+                    zip.setString(1, a.getZip());
+                    zip.setString(2, a.getCity());
+                    zip.addBatch();
+                    for (int i = 0; i < 2; i++) {
+                        address.setString(4 * i + 1, a.getStreet());
+                        address.setString(4 * i + 2, a.getCity());
+                        address.setString(4 * i + 3, a.getState());
+                        address.setString(4 * i + 4, a.getZip());
+                    }
+                    address.addBatch();
+
+                    company.setString(1, c.getUuid().toString());
+                    if (c.getContact() != null) {
+                        company.setString(2, c.getContact().getUuid().toString());
+                    } else {
+                        company.setNull(2, Types.VARCHAR);
+                    }
+                    company.setString(3, c.getName());
+                    company.setString(4, a.getStreet());
+                    company.setString(5, a.getCity());
+                    company.setString(6, a.getState());
+                    company.setString(7, a.getZip());
+                    company.addBatch();
+                }
+                state.executeBatch();
+                zip.executeBatch();
+                address.executeBatch();
+                // inserts nothing, without an error, if the address row is missing
+                requireInserted("Company", chunk, company.executeBatch(), c -> c.getUuid().toString());
+            }
+        });
+    }
+
+    public void addCompanies(Iterable<Company> companies) {
+        addCompanies(stream(companies));
+    }
+
+    /**
+     * Inserts catalog items (equipment, materials and contracts). Leases and
+     * rentals only exist as invoice lines and are skipped.
+     */
+    public void addItems(Stream<Item> items) {
+        importRows("Item", items.filter(i -> !(i instanceof Lease || i instanceof Rental)).iterator(), chunk -> {
+            try (PreparedStatement ps = conn.prepareStatement(ITEM_SQL)) {
+                for (Item item : chunk) {
+                    ps.setString(1, item.getUuid());
+                    ps.setString(3, item.getName());
+                    if (item instanceof Equipment) {
+                        Equipment e = (Equipment) item;
+                        ps.setString(2, "E");
+                        ps.setString(4, e.getModelNumber());
+                        ps.setString(5, Double.toString(e.getRetailPrice()));
+                    } else if (item instanceof Material) {
+                        Material m = (Material) item;
+                        ps.setString(2, "M");
+                        ps.setString(4, m.getUnit());
+                        ps.setString(5, Double.toString(m.getCostPerUnit()));
+                    } else {
+                        Contract c = (Contract) item;
+                        ps.setString(2, "C");
+                        ps.setString(4, c.getCompanyUuid().toString());
+                        ps.setNull(5, Types.VARCHAR);
+                    }
+                    ps.addBatch();
+                }
+                requireInserted("Item", chunk, ps.executeBatch(), Item::getUuid);
+            }
+        });
+    }
+
+    public void addItems(Iterable<Item> items) {
+        addItems(stream(items));
+    }
+
+    /** Inserts invoice header rows; use {@link #addInvoiceItems} for their lines. */
+    public void addInvoices(Stream<Invoice> invoices) {
+        importRows("Invoice", invoices.iterator(), chunk -> {
+            try (PreparedStatement ps = conn.prepareStatement(INVOICE_SQL)) {
+                for (Invoice inv : chunk) {
+                    ps.setString(1, inv.getInvoiceUuid().toString());
+                    ps.setString(2, inv.getCustomer().getUuid().toString());
+                    ps.setString(3, inv.getSalesPerson().getUuid().toString());
+                    ps.setDate(4, Date.valueOf(inv.getInvoiceDate()));
+                    ps.addBatch();
+                }
+                requireInserted("Invoice", chunk, ps.executeBatch(), inv -> inv.getInvoiceUuid().toString());
+            }
+        });
+    }
+
+    public void addInvoices(Iterable<Invoice> invoices) {
+        addInvoices(stream(invoices));
+    }
+
+    /** Inserts one InvoiceItems row per item on each of the given invoices. */
+    public void addInvoiceItems(Stream<Invoice> invoices) {
+        Stream<InvoiceItemRow> lines = invoices.flatMap(inv ->
+                inv.getItems().stream().map(item -> new InvoiceItemRow(inv, item)));
+        importRows("InvoiceItems", lines.iterator(), chunk -> {
+            try (PreparedStatement ps = conn.prepareStatement(INVOICE_ITEM_SQL)) {
+                for (InvoiceItemRow line : chunk) {
+                    Invoice inv = line.invoice;
+                    Item item = line.item;
+                    ps.setString(1, inv.getInvoiceUuid().toString());
+                    ps.setString(2, item.getUuid());
+                    ps.setNull(4, Types.VARCHAR);
+                    ps.setNull(5, Types.VARCHAR);
+                    if (item instanceof Lease) {
+                        Lease l = (Lease) item;
+                        ps.setString(3, "L");
+                        ps.setString(4, l.getStartDate().toString());
+                        ps.setString(5, l.getEndDate().toString());
+                    } else if (item instanceof Rental) {
+                        ps.setString(3, "R");
+                        ps.setString(4, Double.toString(((Rental) item).getHours()));
+                    } else if (item instanceof Material) {
+                        ps.setString(3, Integer.toString(((Material) item).getQuantity()));
+                    } else if (item instanceof Contract) {
+                        ps.setString(3, Double.toString(item.getCost()));
+                    } else {
+                        ps.setString(3, "P");
+                    }
+                    ps.addBatch();
+                }
+                requireInserted("InvoiceItems", chunk, ps.executeBatch(),
+                        line -> line.invoice.getInvoiceUuid() + "/" + line.item.getUuid());
+            }
+        });
+    }
+
+    public void addInvoiceItems(Iterable<Invoice> invoices) {
+        addInvoiceItems(stream(invoices));
+    }
+
+    /**
+     * Commits a single-transaction import. A no-op in per-batch mode, where
+     * batches are already committed.
+     *
+     * @throws SQLException if the commit fails or the import was aborted
+     */
+    public void commit() throws SQLException {
+        if (aborted) {
+            throw new SQLException("Bulk import was rolled back after a failed batch");
+        }
+        if (!commitPerBatch) {
+            conn.commit();
+        }
+    }
+
+    /** @return rows written by batches that succeeded */
+    public long getImportedCount() {
+        return imported;
+    }
+
+    /** @return every batch that failed, in the order they were attempted */
+    public List<BatchFailure> getFailures() {
+        return Collections.unmodifiableList(failures);
+    }
+
+    /**
+     * Rolls back anything not yet committed and returns the connection.
+     */
+    @Override
+    public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            conn.rollback();
+            conn.setAutoCommit(true);
+        } finally {
+            conn.close();
+        }
+        log.info("Bulk import finished: {} rows imported, {} failed batches", imported, failures.size());
+    }
+
+    @FunctionalInterface
+    private interface ChunkWriter<T> {
+        void write(List<T> chunk) throws SQLException;
+    }
+
+    /**
+     * Splits rows into batches and hands each to the writer, committing or
+     * recording failures according to the session's transaction mode.
+     */
+    private <T> void importRows(String table, Iterator<? extends T> rows, ChunkWriter<T> writer) {
+        if (closed || aborted) {
+            throw new IllegalStateException("Bulk import session is no longer accepting rows");
+        }
+        long offset = 0;
+        List<T> chunk = new ArrayList<>(batchSize);
+        while (rows.hasNext()) {
+            chunk.add(rows.next());
+            if (chunk.size() == batchSize || !rows.hasNext()) {
+                if (!flush(table, offset, chunk, writer)) {
+                    return;
+                }
+                offset += chunk.size();
+                chunk.clear();
+            }
+        }
+    }
+
+    /** @return false if the session has been aborted */
+    private <T> boolean flush(String table, long offset, List<T> chunk, ChunkWriter<T> writer) {
+        try {
+            writer.write(chunk);
+            if (commitPerBatch) {
+                conn.commit();
+            }
+            imported += chunk.size();
+            log.debug("Imported {} {} rows", chunk.size(), table);
+            return true;
+        } catch (SQLException e) {
+            failures.add(new BatchFailure(table, offset, chunk.size(), e));
+            log.error("Bulk import of {} rows {}..{} failed", table, offset, offset + chunk.size() - 1, e);
+            try {
+                conn.rollback();
+            } catch (SQLException rollbackEx) {
+                log.error("Rollback after failed {} batch failed", table, rollbackEx);
+            }
+            if (!commitPerBatch) {
+                aborted = true;
+                imported = 0;
+                return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Fails the batch if the update counts show that any row was not
+     * inserted. Drivers may report {@link Statement#SUCCESS_NO_INFO}, which
+     * counts as inserted.
+     *
+     * @param key names a row in the error message
+     * @throws SQLException naming every row that was not inserted
+     */
+    private static <T> void requireInserted(String table, List<T> chunk, int[] counts,
+                                            Function<T, String> key) throws SQLException {
+        List<String> missing = new ArrayList<>();
+        for (int i = 0; i < counts.length && i < chunk.size(); i++) {
+            if (counts[i] == 0) {
+                missing.add(key.apply(chunk.get(i)));
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new SQLException(missing.size() + " " + table + " rows not inserted: " + missing);
+        }
+    }
+
+    private static <T> Stream<T> stream(Iterable<T> rows) {
+        return StreamSupport.stream(rows.spliterator(), false);
+    }
+
+    /** An item paired with the invoice it is billed on. */
+    private static class InvoiceItemRow {
+        private final Invoice invoice;
+        private final Item item;
+
+        InvoiceItemRow(Invoice invoice, Item item) {
+            this.invoice = invoice;
+            this.item = item;
+        }
+    }
+
+    /**
+     * A batch that could not be written.
+     */
+    public static class BatchFailure {
+        private final String table;
+        private final long firstRow;
+        private final int rowCount;
+        private final SQLException cause;
+
+        BatchFailure(String table, long firstRow, int rowCount, SQLException cause) {
+            this.table = table;
+            this.firstRow = firstRow;
+            this.rowCount = rowCount;
+            this.cause = cause;
+        }
+
+        /** @return the table the batch was written to */
+        public String getTable() {
+            return table;
+        }
+
+        /** @return zero-based position of the batch's first row in the submitted rows */
+        public long getFirstRow() {
+            return firstRow;
+        }
+
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        public SQLException getCause() {
+            return cause;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s rows %d-%d: %s",
+                    table, firstRow, firstRow + rowCount - 1, cause.getMessage());
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.vgb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+public class BulkImportTests {
+
+    /**
+     * Stand-in database that records every batch, commit and rollback.
+     * Inserts into {@code failTable} throw; inserts into {@code emptyTable}
+     * report 0 rows, as an INSERT ... SELECT matching nothing does.
+     */
+    private static class FakeDb {
+        final List<String> calls = new ArrayList<>();
+        String failTable;
+        String emptyTable;
+
+        private static <T> T fake(Class<T> type, InvocationHandler handler) {
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler));
+        }
+
+        private static String table(String sql) {
+            String target = sql.split(" ")[2];
+            return target.substring(0, target.indexOf('('));
+        }
+
+        Connection connection() {
+            return fake(Connection.class, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "prepareStatement":
+                        return statement(table((String) args[0]));
+                    case "commit":
+                    case "rollback":
+                        calls.add(method.getName());
+                        return null;
+                    default:
+                        return null;
+                }
+            });
+        }
+
+        private PreparedStatement statement(String table) {
+            int[] pending = { 0 };
+            return fake(PreparedStatement.class, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "addBatch":
+                        pending[0]++;
+                        return null;
+                    case "executeBatch":
+                        int rows = pending[0];
+                        pending[0] = 0;
+                        if (rows == 0) {
+                            return new int[0];
+                        }
+                        calls.add(table + " " + rows);
+                        if (table.equals(failTable)) {
+                            throw new BatchUpdateException("duplicate key", new int[0]);
+                        }
+                        int[] counts = new int[rows];
+                        Arrays.fill(counts, table.equals(emptyTable) ? 0 : 1);
+                        return counts;
+                    default:
+                        return null;
+                }
+            });
+        }
+    }
+
+    private static List<Person> persons(int n) {
+        List<Person> persons = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            persons.add(new Person(UUID.randomUUID().toString(), "First" + i, "Last", "555-0000",
+                    Arrays.asList("p" + i + "@example.com")));
+        }
+        return persons;
+    }
+
+    /**
+     * Tests that rows are sent in batches of batchSize, each committed on
+     * its own in per-batch mode.
+     */
+    @Test
+    public void testChunksAndCommitsPerBatch() throws SQLException {
+        FakeDb db = new FakeDb();
+        try (BulkImport bulk = new BulkImport(db.connection(), 2, true)) {
+            bulk.addPersons(persons(5));
+            assertEquals(5, bulk.getImportedCount());
+            assertTrue(bulk.getFailures().isEmpty());
+        }
+        assertEquals(Arrays.asList("Person 2", "Email 2", "commit", "Person 2", "Email 2", "commit",
+                "Person 1", "Email 1", "commit", "rollback"), db.calls);
+    }
+
+    /**
+     * Tests that a company whose address row is missing, so that nothing
+     * is inserted, is reported as a failed batch and rolled back.
+     */
+    @Test
+    public void testCompanyNotInsertedIsReported() throws SQLException {
+        FakeDb db = new FakeDb();
+        db.emptyTable = "Company";
+        Company company = new Company(UUID.randomUUID().toString(), null, "CoolTech",
+                new Address("123 Main St", "New York", "NY", "10001"));
+        try (BulkImport bulk = new BulkImport(db.connection(), 10, true)) {
+            bulk.addCompanies(Arrays.asList(company));
+            assertEquals(0, bulk.getImportedCount());
+            assertEquals(1, bulk.getFailures().size());
+            BulkImport.BatchFailure failure = bulk.getFailures().get(0);
+            assertEquals("Company", failure.getTable());
+            assertTrue(failure.getCause().getMessage().contains(company.getUuid().toString()));
+        }
+        assertEquals("rollback", db.calls.get(db.calls.size() - 2));
+    }
+
+    /**
+     * Tests that in single-transaction mode the first failure rolls back
+     * everything and the session refuses further rows and the commit.
+     */
+    @Test
+    public void testSingleTransactionAbortsOnFailure() throws SQLException {
+        FakeDb db = new FakeDb();
+        db.failTable = "Email";
+        try (BulkImport bulk = new BulkImport(db.connection(), 2, false)) {
+            bulk.addPersons(persons(5));
+            assertEquals(0, bulk.getImportedCount());
+            assertEquals(1, bulk.getFailures().size());
+            assertEquals(0, bulk.getFailures().get(0).getFirstRow());
+            assertThrows(IllegalStateException.class, () -> bulk.addPersons(persons(1)));
+            assertThrows(SQLException.class, bulk::commit);
+        }
+        assertEquals(Arrays.asList("Person 2", "Email 2", "rollback", "rollback"), db.calls);
+    }
+}
@@ -0,0 +1,266 @@
+// ColumnarInvoiceStore.java
+package com.vgb;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Read-only, column-oriented copy of a set of invoices for aggregate reports.
+ *
+ * Each invoice line becomes one slot in a handful of primitive arrays (owning
+ * invoice, item type, cost and tax in cents), and each invoice one slot in
+ * the invoice columns (customer id, date as epoch day, first line). Customers
+ * are numbered in order of first appearance. Aggregations are then linear
+ * scans over primitive arrays rather than walks over Invoice and Item objects.
+ */
+public class ColumnarInvoiceStore {
+
+    /** Item type codes stored in {@link #getItemTypes()}. */
+    public static final byte EQUIPMENT = 0;
+    public static final byte LEASE = 1;
+    public static final byte RENTAL = 2;
+    public static final byte MATERIAL = 3;
+    public static final byte CONTRACT = 4;
+    public static final int ITEM_TYPE_COUNT = 5;
+
+    private static final String[] TYPE_NAMES = {"Equipment", "Lease", "Rental", "Material", "Contract"};
+
+    // invoice columns
+    private final long[] invoiceUuidMsb;
+    private final long[] invoiceUuidLsb;
+    private final int[] customerIds;
+    private final int[] epochDays;
+    private final int[] firstLine;   // length invoiceCount + 1; lines of invoice i are firstLine[i] until firstLine[i + 1]
+
+    // line columns
+    private final int[] lineInvoice;
+    private final byte[] itemTypes;
+    private final long[] costCents;
+    private final long[] taxCents;
+
+    private final List<Company> customers;
+
+    private ColumnarInvoiceStore(int invoiceCount, int lineCount) {
+        invoiceUuidMsb = new long[invoiceCount];
+        invoiceUuidLsb = new long[invoiceCount];
+        customerIds = new int[invoiceCount];
+        epochDays = new int[invoiceCount];
+        firstLine = new int[invoiceCount + 1];
+        lineInvoice = new int[lineCount];
+        itemTypes = new byte[lineCount];
+        costCents = new long[lineCount];
+        taxCents = new long[lineCount];
+        customers = new ArrayList<>();
+    }
+
+    /**
+     * Copies invoices (for instance {@link DataLoader#getInvoices()}) into columns.
+     * Invoices without a customer get customer id -1.
+     */
+    public static ColumnarInvoiceStore from(List<Invoice> invoices) {
+        int lineCount = 0;
+        for (Invoice invoice : invoices) {
+            lineCount += invoice.getItems().size();
+        }
+        ColumnarInvoiceStore store = new ColumnarInvoiceStore(invoices.size(), lineCount);
+        Map<UUID, Integer> customerIndex = new HashMap<>();
+
+        int line = 0;
+        for (int i = 0; i < invoices.size(); i++) {
+            Invoice invoice = invoices.get(i);
+            store.invoiceUuidMsb[i] = invoice.getInvoiceUuid().getMostSignificantBits();
+            store.invoiceUuidLsb[i] = invoice.getInvoiceUuid().getLeastSignificantBits();
+            store.epochDays[i] = (int) invoice.getInvoiceDate().toEpochDay();
+
+            Company customer = invoice.getCustomer();
+            if (customer == null) {
+                store.customerIds[i] = -1;
+            } else {
+                Integer id = customerIndex.get(customer.getUuid());
+                if (id == null) {
+                    id = store.customers.size();
+                    customerIndex.put(customer.getUuid(), id);
+                    store.customers.add(customer);
+                }
+                store.customerIds[i] = id;
+            }
+
+            store.firstLine[i] = line;
+            for (Item item : invoice.getItems()) {
+                store.lineInvoice[line] = i;
+                store.itemTypes[line] = typeOf(item);
+                store.costCents[line] = item.getCostCents();
+                store.taxCents[line] = item.getTaxCents();
+                line++;
+            }
+        }
+        store.firstLine[invoices.size()] = line;
+        return store;
+    }
+
+    /** @return the type code of an item */
+    static byte typeOf(Item item) {
+        if (item instanceof Lease) {
+            return LEASE;
+        } else if (item instanceof Rental) {
+            return RENTAL;
+        } else if (item instanceof Material) {
+            return MATERIAL;
+        } else if (item instanceof Contract) {
+            return CONTRACT;
+        }
+        return EQUIPMENT;
+    }
+
+    /** @return the name of a type code, as used in exports: "Equipment", "Lease" and so on */
+    static String typeName(byte type) {
+        return TYPE_NAMES[type];
+    }
+
+    public int getInvoiceCount() {
+        return customerIds.length;
+    }
+
+    public int getLineCount() {
+        return costCents.length;
+    }
+
+    /** @return the customers, indexed by customer id */
+    public List<Company> getCustomers() {
+        return Collections.unmodifiableList(customers);
+    }
+
+    public UUID getInvoiceUuid(int invoice) {
+        return new UUID(invoiceUuidMsb[invoice], invoiceUuidLsb[invoice]);
+    }
+
+    public LocalDate getInvoiceDate(int invoice) {
+        return LocalDate.ofEpochDay(epochDays[invoice]);
+    }
+
+    public int getCustomerId(int invoice) {
+        return customerIds[invoice];
+    }
+
+    public int getLineCount(int invoice) {
+        return firstLine[invoice + 1] - firstLine[invoice];
+    }
+
+    /*
+     * Raw columns, shared rather than copied so callers can write their own
+     * scans; they must not be modified.
+     */
+
+    public int[] getLineInvoices() {
+        return lineInvoice;
+    }
+
+    public byte[] getItemTypes() {
+        return itemTypes;
+    }
+
+    public long[] getCostCents() {
+        return costCents;
+    }
+
+    public long[] getTaxCents() {
+        return taxCents;
+    }
+
+    public int[] getEpochDays() {
+        return epochDays;
+    }
+
+    public int[] getCustomerIds() {
+        return customerIds;
+    }
+
+    /** @return the subtotal of all lines, in cents */
+    public long totalCostCents() {
+        return sum(costCents);
+    }
+
+    /** @return the tax on all lines, in cents */
+    public long totalTaxCents() {
+        return sum(taxCents);
+    }
+
+    /** @return each invoice's tax in cents, indexed by invoice */
+    public long[] taxCentsByInvoice() {
+        long[] totals = new long[getInvoiceCount()];
+        for (int line = 0; line < taxCents.length; line++) {
+            totals[lineInvoice[line]] += taxCents[line];
+        }
+        return totals;
+    }
+
+    /** @return each invoice's grand total (cost + tax) in cents, indexed by invoice */
+    public long[] grandTotalCentsByInvoice() {
+        long[] totals = new long[getInvoiceCount()];
+        for (int line = 0; line < costCents.length; line++) {
+            totals[lineInvoice[line]] += costCents[line] + taxCents[line];
+        }
+        return totals;
+    }
+
+    /** @return each customer's grand total in cents, indexed by customer id */
+    public long[] grandTotalCentsByCustomer() {
+        long[] byInvoice = grandTotalCentsByInvoice();
+        long[] totals = new long[customers.size()];
+        for (int i = 0; i < byInvoice.length; i++) {
+            if (customerIds[i] >= 0) {
+                totals[customerIds[i]] += byInvoice[i];
+            }
+        }
+        return totals;
+    }
+
+    /** @return how many invoices each customer has, indexed by customer id */
+    public int[] invoiceCountByCustomer() {
+        int[] counts = new int[customers.size()];
+        for (int id : customerIds) {
+            if (id >= 0) {
+                counts[id]++;
+            }
+        }
+        return counts;
+    }
+
+    /** @return subtotal in cents per item type, indexed by the type codes above */
+    public long[] costCentsByItemType() {
+        long[] totals = new long[ITEM_TYPE_COUNT];
+        for (int line = 0; line < costCents.length; line++) {
+            totals[itemTypes[line]] += costCents[line];
+        }
+        return totals;
+    }
+
+    /**
+     * @return the grand total in cents of invoices dated on or between the two days
+     */
+    public long grandTotalCentsBetween(LocalDate from, LocalDate to) {
+        int first = (int) from.toEpochDay();
+        int last = (int) to.toEpochDay();
+        long total = 0;
+        for (int line = 0; line < costCents.length; line++) {
+            int day = epochDays[lineInvoice[line]];
+            if (day >= first && day <= last) {
+                total += costCents[line] + taxCents[line];
+            }
+        }
+        return total;
+    }
+
+    private static long sum(long[] column) {
+        long total = 0;
+        for (long value : column) {
+            total += value;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,94 @@
+package com.vgb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+public class ColumnarInvoiceStoreTests {
+
+    private final Person sales = new Person(UUID.randomUUID().toString(), "Ken", "Doll", "555-1038", null);
+    private final Address address = new Address("123 Main St", "New York", "NY", "10001");
+    private final Company coolTech = new Company(UUID.randomUUID().toString(), sales, "CoolTech", address);
+    private final Company techyToys = new Company(UUID.randomUUID().toString(), sales, "TechyToys", address);
+    private final Equipment crane = new Equipment(UUID.randomUUID().toString(), "Crane", "CR300", 50000.0);
+    private final Material sand = new Material(UUID.randomUUID().toString(), "Sand", "Truckload", 30.0, 0);
+    private final Contract pour = new Contract(UUID.randomUUID().toString(), "Pour",
+            coolTech.getUuid().toString(), 0);
+
+    private final Invoice mixed = invoice(LocalDate.of(2025, 3, 10), coolTech,
+            crane, new Lease(crane.getUuid(), crane, "2025-06-15", "2028-03-22"),
+            new Rental(crane.getUuid(), crane, 25.5), sand.withQuantity(50), pour.withCost(12000.25));
+    private final Invoice sandOnly = invoice(LocalDate.of(2025, 4, 22), techyToys, sand.withQuantity(7));
+    private final Invoice empty = invoice(LocalDate.of(2025, 5, 1), coolTech);
+    private final Invoice noCustomer = invoice(LocalDate.of(2025, 6, 30), null, pour.withCost(999.99));
+    private final List<Invoice> invoices = Arrays.asList(mixed, sandOnly, empty, noCustomer);
+
+    private Invoice invoice(LocalDate date, Company customer, Item... items) {
+        return new Invoice(UUID.randomUUID().toString(), date, customer, sales, Arrays.asList(items));
+    }
+
+    private static long costCents(List<Invoice> invoices, Class<? extends Item> type) {
+        long total = 0;
+        for (Invoice invoice : invoices) {
+            for (Item item : invoice.getItems()) {
+                if (item.getClass() == type) {
+                    total += item.getCostCents();
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Tests that the per-invoice and per-customer totals and counts match
+     * what each Invoice calculates, an invoice without a customer counting
+     * towards neither customer.
+     */
+    @Test
+    public void testTotalsMatchInvoices() {
+        ColumnarInvoiceStore store = ColumnarInvoiceStore.from(invoices);
+        long[] byInvoice = store.grandTotalCentsByInvoice();
+        for (int i = 0; i < invoices.size(); i++) {
+            assertEquals(invoices.get(i).calculateGrandTotalCents(), byInvoice[i]);
+        }
+
+        assertEquals(Arrays.asList(coolTech, techyToys), store.getCustomers());
+        long[] byCustomer = store.grandTotalCentsByCustomer();
+        assertEquals(2, byCustomer.length);
+        assertEquals(mixed.calculateGrandTotalCents() + empty.calculateGrandTotalCents(), byCustomer[0]);
+        assertEquals(sandOnly.calculateGrandTotalCents(), byCustomer[1]);
+        int[] counts = store.invoiceCountByCustomer();
+        assertEquals(2, counts[0]);
+        assertEquals(1, counts[1]);
+    }
+
+    /**
+     * Tests the subtotal per item type, and the grand total over date
+     * ranges, both ends inclusive.
+     */
+    @Test
+    public void testByTypeAndBetweenDates() {
+        ColumnarInvoiceStore store = ColumnarInvoiceStore.from(invoices);
+        long[] byType = store.costCentsByItemType();
+        assertEquals(costCents(invoices, Equipment.class), byType[ColumnarInvoiceStore.EQUIPMENT]);
+        assertEquals(costCents(invoices, Lease.class), byType[ColumnarInvoiceStore.LEASE]);
+        assertEquals(costCents(invoices, Rental.class), byType[ColumnarInvoiceStore.RENTAL]);
+        assertEquals(costCents(invoices, Material.class), byType[ColumnarInvoiceStore.MATERIAL]);
+        assertEquals(costCents(invoices, Contract.class), byType[ColumnarInvoiceStore.CONTRACT]);
+        long subtotal = 0;
+        for (Invoice invoice : invoices) {
+            subtotal += invoice.calculateSubtotalCents();
+        }
+        assertEquals(subtotal, Arrays.stream(byType).sum());
+
+        assertEquals(mixed.calculateGrandTotalCents() + sandOnly.calculateGrandTotalCents(),
+                store.grandTotalCentsBetween(LocalDate.of(2025, 3, 10), LocalDate.of(2025, 4, 22)));
+        assertEquals(sandOnly.calculateGrandTotalCents() + noCustomer.calculateGrandTotalCents(),
+                store.grandTotalCentsBetween(LocalDate.of(2025, 3, 11), LocalDate.of(2025, 12, 31)));
+        assertEquals(0, store.grandTotalCentsBetween(LocalDate.of(2024, 1, 1), LocalDate.of(2025, 3, 9)));
+    }
+}
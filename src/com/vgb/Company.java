@@ -1,12 +1,13 @@
 package com.vgb;
 
+import java.io.IOException;
 import java.util.UUID;
 
 public class Company {
-    private UUID companyUuid;
-    private Person contact;
-    private String name;
-    private Address address;
+    private final UUID companyUuid;
+    private final Person contact;
+    private final String name;
+    private final Address address;
 
     public Company(String companyUuid, Person contact, String name, Address address) {
         this.companyUuid = UUID.fromString(companyUuid);
@@ -31,10 +32,17 @@ public class Company {
         return address;
     }
     
+    /** Writes the name and UUID, then the contact and the address. */
+    public void writeTo(ReportWriter out) throws IOException {
+        out.padRight(name, 32).append(" (").append(companyUuid).append(')').newLine();
+        contact.writeTo(out);
+        out.newLine();
+        address.writeTo(out);
+    }
+
     @Override
     public String toString() {
-        return String.format("%-32s (%s)\n%s\n%s",
-                name, companyUuid, contact.toString(), address.toString());
+        return ReportWriter.render(this::writeTo);
     }
 
 
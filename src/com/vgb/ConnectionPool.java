@@ -0,0 +1,486 @@
+// ConnectionPool.java
+package com.vgb;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Bounded pool of JDBC connections.
+ *
+ * Borrowed connections are proxies: calling close() hands the physical
+ * connection back to the pool (rolled back and reset to auto-commit)
+ * instead of closing it. Idle connections are validated before being
+ * handed out, idle connections above the minimum size are closed once they
+ * have sat unused for the idle timeout, and connections held longer than
+ * the leak threshold are logged together with the stack that borrowed them.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private static final Logger log = LogManager.getLogger(ConnectionPool.class);
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    /**
+     * Opens a new physical connection; lets the pool run against any
+     * database, or a stand-in during tests.
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    private final ConnectionFactory factory;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long leakThresholdMillis;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final Map<Connection, PooledConnection> borrowed = new IdentityHashMap<>();
+    private final ScheduledExecutorService housekeeper;
+
+    // all guarded by lock
+    private int total;
+    private int waiting;
+    private boolean closed;
+    private long created;
+    private long destroyed;
+    private long borrows;
+    private long timeouts;
+    private long leaks;
+
+    /**
+     * @param factory             opens physical connections
+     * @param minSize             connections kept open even when idle
+     * @param maxSize             upper bound on open connections
+     * @param borrowTimeoutMillis how long borrow() waits for a free connection
+     * @param idleTimeoutMillis   idle time after which connections above minSize are closed
+     * @param leakThresholdMillis borrow duration after which a leak is reported; 0 disables
+     */
+    public ConnectionPool(ConnectionFactory factory, int minSize, int maxSize,
+                          long borrowTimeoutMillis, long idleTimeoutMillis, long leakThresholdMillis) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.factory = factory;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+
+        long period = Math.max(100, Math.min(idleTimeoutMillis,
+                leakThresholdMillis > 0 ? leakThresholdMillis : idleTimeoutMillis) / 2);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ConnectionPool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 0, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting up to the borrow timeout for one to free up.
+     * Close the returned connection to give it back.
+     *
+     * @return a validated connection
+     * @throws SQLTimeoutException if none became available in time
+     * @throws SQLException        if the pool is closed or a new connection fails
+     */
+    public Connection borrow() throws SQLException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMillis);
+        while (true) {
+            PooledConnection candidate = null;
+            boolean create = false;
+
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) {
+                        throw new SQLException("Connection pool is closed");
+                    }
+                    if (!idle.isEmpty()) {
+                        candidate = idle.pollFirst();
+                        break;
+                    }
+                    if (total < maxSize) {
+                        total++;
+                        create = true;
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeouts++;
+                        throw new SQLTimeoutException("Timed out after " + borrowTimeoutMillis
+                                + " ms waiting for a database connection");
+                    }
+                    waiting++;
+                    try {
+                        available.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted waiting for a database connection", e);
+                    } finally {
+                        waiting--;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (create) {
+                candidate = open();
+            } else if (!isValid(candidate.physical)) {
+                log.warn("Discarding invalid pooled connection");
+                discard(candidate);
+                continue;
+            }
+            return lend(candidate);
+        }
+    }
+
+    /** @return a snapshot of the pool's current size and lifetime counters */
+    public Stats getStats() {
+        lock.lock();
+        try {
+            return new Stats(total, idle.size(), borrowed.size(), waiting,
+                    created, destroyed, borrows, timeouts, leaks);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes every idle connection and stops housekeeping. Connections still
+     * borrowed are closed as they are returned.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (PooledConnection pc : idle) {
+                closeQuietly(pc.physical);
+                total--;
+                destroyed++;
+            }
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        housekeeper.shutdownNow();
+        log.info("Connection pool closed");
+    }
+
+    private PooledConnection open() throws SQLException {
+        try {
+            Connection physical = factory.create();
+            lock.lock();
+            try {
+                created++;
+            } finally {
+                lock.unlock();
+            }
+            log.debug("Opened new pooled connection");
+            return new PooledConnection(physical);
+        } catch (SQLException | RuntimeException e) {
+            lock.lock();
+            try {
+                total--;
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+    }
+
+    private Connection lend(PooledConnection pc) {
+        pc.borrowedAt = System.currentTimeMillis();
+        pc.borrowedBy = (leakThresholdMillis > 0) ? new Exception("Connection borrowed here") : null;
+        pc.leakReported = false;
+        Connection handle = (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new Handle(pc));
+        lock.lock();
+        try {
+            borrows++;
+            borrowed.put(handle, pc);
+        } finally {
+            lock.unlock();
+        }
+        return handle;
+    }
+
+    /** Called when a borrowed handle is closed. */
+    private void giveBack(Connection handle, PooledConnection pc) {
+        boolean reusable = reset(pc.physical);
+        lock.lock();
+        try {
+            borrowed.remove(handle);
+            if (reusable && !closed) {
+                pc.idleSince = System.currentTimeMillis();
+                idle.addFirst(pc);
+                available.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        discard(pc);
+    }
+
+    private void discard(PooledConnection pc) {
+        closeQuietly(pc.physical);
+        lock.lock();
+        try {
+            total--;
+            destroyed++;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Rolls back any open transaction and restores auto-commit. */
+    private static boolean reset(Connection physical) {
+        try {
+            if (physical.isClosed()) {
+                return false;
+            }
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException e) {
+            log.warn("Could not reset returned connection; discarding it", e);
+            return false;
+        }
+    }
+
+    private static boolean isValid(Connection physical) {
+        try {
+            return physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static void closeQuietly(Connection physical) {
+        try {
+            physical.close();
+        } catch (SQLException e) {
+            log.debug("Error closing pooled connection", e);
+        }
+    }
+
+    /**
+     * Evicts connections idle past the timeout, tops the pool back up to its
+     * minimum size, and reports connections borrowed past the leak threshold.
+     */
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+        int missing;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext() && total > minSize) {
+                PooledConnection pc = it.next();
+                if (now - pc.idleSince >= idleTimeoutMillis) {
+                    it.remove();
+                    closeQuietly(pc.physical);
+                    total--;
+                    destroyed++;
+                }
+            }
+            if (leakThresholdMillis > 0) {
+                for (PooledConnection pc : borrowed.values()) {
+                    if (!pc.leakReported && now - pc.borrowedAt >= leakThresholdMillis) {
+                        pc.leakReported = true;
+                        leaks++;
+                        log.warn("Connection held for {} ms without being closed; possible leak",
+                                now - pc.borrowedAt, pc.borrowedBy);
+                    }
+                }
+            }
+            missing = minSize - total;
+            total += Math.max(missing, 0);
+        } finally {
+            lock.unlock();
+        }
+
+        for (int i = 0; i < missing; i++) {
+            try {
+                PooledConnection pc = open();
+                lock.lock();
+                try {
+                    pc.idleSince = System.currentTimeMillis();
+                    idle.addLast(pc);
+                    available.signal();
+                } finally {
+                    lock.unlock();
+                }
+            } catch (SQLException | RuntimeException e) {
+                // open() has already released the reserved slot
+                log.warn("Could not open connection to maintain minimum pool size", e);
+                lock.lock();
+                try {
+                    total -= missing - i - 1;
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+        }
+    }
+
+    /** A physical connection plus its pool bookkeeping. */
+    private static class PooledConnection {
+        private final Connection physical;
+        private long idleSince;
+        private long borrowedAt;
+        private Exception borrowedBy;
+        private boolean leakReported;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+    }
+
+    /** Routes calls on a borrowed handle to its physical connection. */
+    private class Handle implements InvocationHandler {
+        private final PooledConnection pc;
+        private boolean returned;
+
+        Handle(PooledConnection pc) {
+            this.pc = pc;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        giveBack((Connection) proxy, pc);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pc.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + pc.physical;
+                default:
+                    if (returned) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    try {
+                        return method.invoke(pc.physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+
+    /** Point-in-time pool statistics. */
+    public static class Stats {
+        private final int total;
+        private final int idle;
+        private final int active;
+        private final int waiting;
+        private final long created;
+        private final long destroyed;
+        private final long borrows;
+        private final long timeouts;
+        private final long leaks;
+
+        Stats(int total, int idle, int active, int waiting, long created,
+              long destroyed, long borrows, long timeouts, long leaks) {
+            this.total = total;
+            this.idle = idle;
+            this.active = active;
+            this.waiting = waiting;
+            this.created = created;
+            this.destroyed = destroyed;
+            this.borrows = borrows;
+            this.timeouts = timeouts;
+            this.leaks = leaks;
+        }
+
+        /** @return open connections, including ones still being created */
+        public int getTotal() {
+            return total;
+        }
+
+        public int getIdle() {
+            return idle;
+        }
+
+        public int getActive() {
+            return active;
+        }
+
+        /** @return threads currently blocked in borrow() */
+        public int getWaiting() {
+            return waiting;
+        }
+
+        public long getCreated() {
+            return created;
+        }
+
+        public long getDestroyed() {
+            return destroyed;
+        }
+
+        public long getBorrows() {
+            return borrows;
+        }
+
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        public long getLeaks() {
+            return leaks;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("total=%d idle=%d active=%d waiting=%d created=%d destroyed=%d borrows=%d timeouts=%d leaks=%d",
+                    total, idle, active, waiting, created, destroyed, borrows, timeouts, leaks);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.vgb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ConnectionPoolTests {
+
+    /**
+     * Builds a stand-in Connection that only tracks whether it is open.
+     */
+    private static Connection fakeConnection(AtomicBoolean valid) {
+        AtomicBoolean open = new AtomicBoolean(true);
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            open.set(false);
+                            return null;
+                        case "isClosed":
+                            return !open.get();
+                        case "isValid":
+                            return open.get() && valid.get();
+                        case "getAutoCommit":
+                            return true;
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    /**
+     * Tests that a returned connection is reused instead of reopened.
+     */
+    @Test
+    public void testConnectionIsReused() throws SQLException {
+        AtomicBoolean valid = new AtomicBoolean(true);
+        try (ConnectionPool pool = new ConnectionPool(() -> fakeConnection(valid), 0, 2, 1000, 60_000, 0)) {
+            Connection first = pool.borrow();
+            first.close();
+            assertTrue(first.isClosed());
+            pool.borrow().close();
+
+            ConnectionPool.Stats stats = pool.getStats();
+            assertEquals(1, stats.getCreated());
+            assertEquals(2, stats.getBorrows());
+            assertEquals(1, stats.getIdle());
+            assertEquals(0, stats.getActive());
+        }
+    }
+
+    /**
+     * Tests that borrowing from an exhausted pool times out.
+     */
+    @Test
+    public void testBorrowTimesOutWhenExhausted() throws SQLException {
+        AtomicBoolean valid = new AtomicBoolean(true);
+        try (ConnectionPool pool = new ConnectionPool(() -> fakeConnection(valid), 0, 1, 50, 60_000, 0)) {
+            Connection held = pool.borrow();
+            assertThrows(SQLTimeoutException.class, pool::borrow);
+            assertEquals(1, pool.getStats().getTimeouts());
+            held.close();
+        }
+    }
+
+    /**
+     * Tests that an idle connection failing validation is replaced.
+     */
+    @Test
+    public void testInvalidConnectionIsReplaced() throws SQLException {
+        AtomicBoolean valid = new AtomicBoolean(true);
+        try (ConnectionPool pool = new ConnectionPool(() -> fakeConnection(valid), 0, 1, 1000, 60_000, 0)) {
+            pool.borrow().close();
+            valid.set(false);
+            Connection replacement = pool.borrow();
+            valid.set(true);
+            replacement.close();
+
+            ConnectionPool.Stats stats = pool.getStats();
+            assertEquals(2, stats.getCreated());
+            assertEquals(1, stats.getDestroyed());
+            assertEquals(1, stats.getTotal());
+        }
+    }
+}
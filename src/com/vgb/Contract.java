@@ -1,34 +1,45 @@
 // Contract.java
 package com.vgb;
 
+import java.io.IOException;
 import java.util.UUID;
 
 public class Contract extends Item {
-    private UUID companyUuid;
-    private double cost;
+    private final UUID companyUuid;
+    private final double cost;
+    private final transient long costCents;
 
     public Contract(String uuid, String name, String companyUuid, double cost) {
+        this(uuid, name, UUID.fromString(companyUuid), cost);
+    }
+
+    private Contract(String uuid, String name, UUID companyUuid, double cost) {
         super(uuid, name);
-        this.companyUuid = UUID.fromString(companyUuid);
+        this.companyUuid = companyUuid;
         this.cost = cost;
+        this.costCents = Money.toCents(cost);
     }
 
     public UUID getCompanyUuid() {
         return companyUuid;
     }
 
-    public void setCost(double cost) {
-        this.cost = cost;
+    /**
+     * @return a copy of this contract billed at the given amount, for use as
+     *         an invoice line
+     */
+    public Contract withCost(double cost) {
+        return new Contract(getUuid(), getName(), companyUuid, cost);
     }
 
     /** Implements cost and tax for contract */
     @Override
-    public double getCost() {
-        return cost;
+    public long getCostCents() {
+        return costCents;
     }
 
     @Override
-    public double getTax() {
+    public long getTaxCents() {
         return 0;
     }
 
@@ -37,12 +48,9 @@ public class Contract extends Item {
      *   "Contract: <name> (Company UUID: <companyUuid>)"
      */
     @Override
-    public String toString() {
-        return String.format(
-            "Contract: %s (Company UUID: %s)",
-            getName(),
-            companyUuid
-        );
+    public void writeTo(ReportWriter out) throws IOException {
+        out.append("Contract: ").append(getName())
+           .append(" (Company UUID: ").append(companyUuid).append(')');
     }
 }
 
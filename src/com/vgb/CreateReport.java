@@ -1,85 +1,482 @@
 package com.vgb;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.Comparator;
 
 public class CreateReport {
     private List<Invoice> invoices;
+    private final boolean parallel;
+    private final ReportWriter out;
+
+    /** Most invoice blocks rendered ahead of the output in parallel mode. */
+    public static final int RENDER_WINDOW = 4 * Runtime.getRuntime().availableProcessors();
+
+    private static final String RULE =
+        "+----------------------------------------------------------------+";
+    private static final String WIDE_RULE =
+        "+----------------------------------------------------------------------------------------+";
 
     public CreateReport(List<Invoice> invoices) {
+        this(invoices, false);
+    }
+
+    /**
+     * @param parallel whether to compute invoice and customer totals on all
+     *                 cores; the printed reports are identical either way
+     */
+    public CreateReport(List<Invoice> invoices, boolean parallel) {
+        this(invoices, parallel, new ReportWriter(new OutputStreamWriter(System.out, System.out.charset())));
+    }
+
+    /**
+     * @param out where the reports are written; each report flushes it when
+     *            done, but closing it is up to the caller
+     */
+    public CreateReport(List<Invoice> invoices, boolean parallel, ReportWriter out) {
         this.invoices = invoices;
+        this.parallel = parallel;
+        this.out = out;
     }
 
+    /**
+     * Prints every invoice, highest grand total first. The invoice list
+     * itself is left in its original order.
+     */
     public void generateSummaryReport() {
-        System.out.println("+----------------------------------------------------------------------------------------+");
-        System.out.printf("| %-85s |\n", "Summary Report - By Total");
-        System.out.println("+----------------------------------------------------------------------------------------+");
-        System.out.printf("%-12s %-32s %-12s %-10s %-10s\n", "Invoice #", "Customer", "Num Items", "Tax", "Total");
+        printSummary("Summary Report - By Total", CreateReport::rankByTotal);
+    }
+
+    /**
+     * Prints only the {@code k} invoices with the highest grand totals; the
+     * footer still totals all invoices.
+     */
+    public void generateSummaryReport(int k) {
+        printSummary("Summary Report - Top " + k + " By Total", list -> topByTotal(list, k));
+    }
 
-        double totalTax = 0;
-        double grandTotal = 0;
+    /**
+     * @param rank orders the invoices to print; it runs after the parallel
+     *             fill so that its comparisons find the totals memoized
+     */
+    private void printSummary(String title, UnaryOperator<List<Invoice>> rank) {
+        if (parallel) {
+            // fill every invoice's memoized totals across cores before ranking on them
+            invoices.parallelStream().forEach(Invoice::calculateGrandTotalCents);
+        }
+        List<Invoice> ranked = rank.apply(invoices);
+        long totalTax = invoiceStream().mapToLong(Invoice::calculateTaxTotalCents).sum();
+        long grandTotal = invoiceStream().mapToLong(Invoice::calculateGrandTotalCents).sum();
         int totalInvoices = invoices.size();
 
-        invoices.sort(Comparator.comparingDouble(Invoice::calculateGrandTotal).reversed());
+        try {
+            writeSummaryHeader(out, title);
+            for (Invoice invoice : ranked) {
+                writeSummaryLine(out, invoice.getInvoiceUuid(), invoice.getCustomer().getName(),
+                        invoice.getItems().size(), invoice.calculateTaxTotalCents(),
+                        invoice.calculateGrandTotalCents());
+            }
+            writeSummaryFooter(out, totalInvoices, totalTax, grandTotal);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-        for (Invoice invoice : invoices) {
-            double tax = invoice.calculateTaxTotal();
-            double total = invoice.calculateGrandTotal();
-            int numItems = invoice.getItems().size();
-            totalTax += tax;
-            grandTotal += total;
+    /**
+     * Prints the summary report from a snapshot's aggregates, highest grand
+     * total first, without loading any invoice.
+     */
+    public static void generateSummaryReport(ReportSnapshot snapshot, ReportWriter out) throws IOException {
+        List<ReportSnapshot.InvoiceTotals> ranked = new ArrayList<>(snapshot.getInvoiceTotals());
+        ranked.sort(Comparator.comparingLong(ReportSnapshot.InvoiceTotals::getGrandTotalCents).reversed());
 
-            System.out.printf("%-12s %-32s %-12d $%10.2f $%10.2f\n",
-                    invoice.getInvoiceUuid(),
-                    invoice.getCustomer().getName(),
-                    numItems,
-                    tax,
-                    total);
+        long totalTax = 0;
+        long grandTotal = 0;
+        writeSummaryHeader(out, "Summary Report - By Total");
+        for (ReportSnapshot.InvoiceTotals t : ranked) {
+            writeSummaryLine(out, t.getInvoiceUuid(), t.getCustomerName(), t.getItemCount(),
+                    t.getTaxTotalCents(), t.getGrandTotalCents());
+            totalTax += t.getTaxTotalCents();
+            grandTotal += t.getGrandTotalCents();
         }
+        writeSummaryFooter(out, ranked.size(), totalTax, grandTotal);
+        out.flush();
+    }
 
-        System.out.println("+----------------------------------------------------------------------------------------+");
-        System.out.printf("%-45s %12d $%10.2f $%10.2f\n\n", "", totalInvoices, totalTax, grandTotal);
+    private static void writeSummaryHeader(ReportWriter out, String title) throws IOException {
+        out.append(WIDE_RULE).newLine();
+        out.append("| ").padRight(title, 85).append(" |").newLine();
+        out.append(WIDE_RULE).newLine();
+        out.padRight("Invoice #", 12).append(' ').padRight("Customer", 32).append(' ')
+           .padRight("Num Items", 12).append(' ').padRight("Tax", 10).append(' ')
+           .padRight("Total", 10).newLine();
     }
 
-    public void generateCustomerReport() {
-        System.out.println("+----------------------------------------------------------------+");
-        System.out.printf("| %-60s |\n", "Company Invoice Summary Report");
-        System.out.println("+----------------------------------------------------------------+");
-        System.out.printf("%-32s %-12s %-10s\n", "Company", "# Invoices", "Grand Total");
+    private static void writeSummaryLine(ReportWriter out, UUID invoiceUuid, String customerName,
+                                         int itemCount, long taxCents, long totalCents) throws IOException {
+        out.padRight(invoiceUuid, 12).append(' ')
+           .padRight(customerName, 32).append(' ')
+           .padRight(Integer.toString(itemCount), 12)
+           .append(" $").money(taxCents, 10)
+           .append(" $").money(totalCents, 10).newLine();
+    }
 
-        Map<Company, List<Invoice>> customerInvoices = invoices.stream()
-                .collect(Collectors.groupingBy(Invoice::getCustomer));
+    private static void writeSummaryFooter(ReportWriter out, int invoiceCount, long taxCents,
+                                           long totalCents) throws IOException {
+        out.append(WIDE_RULE).newLine();
+        out.spaces(45).append(' ').number(invoiceCount, 12)
+           .append(" $").money(taxCents, 10)
+           .append(" $").money(totalCents, 10).newLine().newLine();
+    }
+
+    public void generateCustomerReport() {
+        Map<Company, CustomerTotals> customerTotals = customerTotals();
 
-        double overallGrandTotal = 0;
+        long overallGrandTotal = 0;
         int totalInvoiceCount = 0;
 
-        for (Map.Entry<Company, List<Invoice>> entry : customerInvoices.entrySet()) {
-            Company customer = entry.getKey();
-            List<Invoice> customerInvoiceList = entry.getValue();
-            double grandTotal = customerInvoiceList.stream().mapToDouble(Invoice::calculateGrandTotal).sum();
+        try {
+            writeCustomerHeader(out);
+            for (Map.Entry<Company, CustomerTotals> entry : customerTotals.entrySet()) {
+                Company customer = entry.getKey();
+                CustomerTotals totals = entry.getValue();
 
-            System.out.printf("%-32s %12d $%10.2f\n",
-                    customer.getName(),
-                    customerInvoiceList.size(),
-                    grandTotal);
+                writeCustomerLine(out, customer.getName(), totals.invoiceCount, totals.grandTotalCents);
 
-            overallGrandTotal += grandTotal;
-            totalInvoiceCount += customerInvoiceList.size();
+                overallGrandTotal += totals.grandTotalCents;
+                totalInvoiceCount += totals.invoiceCount;
+            }
+            writeCustomerFooter(out, totalInvoiceCount, overallGrandTotal);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+    }
 
-        System.out.println("+----------------------------------------------------------------+");
-        System.out.printf("%-32s %12d $%10.2f\n\n", "", totalInvoiceCount, overallGrandTotal);
+    /**
+     * Prints the customer report from a snapshot's patched per-customer
+     * aggregates, without loading any invoice.
+     */
+    public static void generateCustomerReport(ReportSnapshot snapshot, ReportWriter out) throws IOException {
+        long overallGrandTotal = 0;
+        int totalInvoiceCount = 0;
+        writeCustomerHeader(out);
+        for (ReportSnapshot.CustomerTotals totals : snapshot.getCustomerTotals()) {
+            writeCustomerLine(out, totals.getName(), totals.getInvoiceCount(), totals.getGrandTotalCents());
+            overallGrandTotal += totals.getGrandTotalCents();
+            totalInvoiceCount += totals.getInvoiceCount();
+        }
+        writeCustomerFooter(out, totalInvoiceCount, overallGrandTotal);
+        out.flush();
+    }
+
+    private static void writeCustomerHeader(ReportWriter out) throws IOException {
+        out.append(RULE).newLine();
+        out.append("| ").padRight("Company Invoice Summary Report", 60).append(" |").newLine();
+        out.append(RULE).newLine();
+        out.padRight("Company", 32).append(' ').padRight("# Invoices", 12).append(' ')
+           .padRight("Grand Total", 10).newLine();
+    }
+
+    private static void writeCustomerLine(ReportWriter out, String name, int invoiceCount,
+                                          long grandTotalCents) throws IOException {
+        out.padRight(name, 32).append(' ')
+           .number(invoiceCount, 12)
+           .append(" $").money(grandTotalCents, 10).newLine();
     }
 
+    private static void writeCustomerFooter(ReportWriter out, int invoiceCount, long grandTotalCents)
+            throws IOException {
+        out.append(RULE).newLine();
+        out.spaces(32).append(' ').number(invoiceCount, 12)
+           .append(" $").money(grandTotalCents, 10).newLine().newLine();
+    }
+
+    /**
+     * Prints every invoice in full. In parallel mode the invoice blocks are
+     * rendered concurrently and written in list order, so the output is the same.
+     */
     public void generateDetailedInvoiceReport() {
-        System.out.println("+----------------------------------------------------------------+");
-        System.out.printf("| %-60s |\n", "Detailed Invoice Report");
-        System.out.println("+----------------------------------------------------------------+\n");
+        try {
+            writeDetailedHeader(out);
+            if (parallel) {
+                OrderedRenderer renderer = new OrderedRenderer(out);
+                for (Invoice invoice : invoices) {
+                    renderer.submit(invoice);
+                }
+                renderer.finish();
+            } else {
+                for (Invoice invoice : invoices) {
+                    invoice.writeTo(out);
+                    out.newLine();
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the detailed report for every invoice a cursor yields, pulling
+     * one invoice at a time and writing it straight out, so the report runs
+     * in constant memory however many invoices there are.
+     *
+     * @return the number of invoices written
+     */
+    public static long generateDetailedInvoiceReport(InvoiceCursor cursor, ReportWriter out)
+            throws SQLException, IOException {
+        return generateDetailedInvoiceReport(cursor, out, false);
+    }
+
+    /**
+     * As {@link #generateDetailedInvoiceReport(InvoiceCursor, ReportWriter)};
+     * in parallel, up to {@link #RENDER_WINDOW} invoices are rendered at once
+     * while the cursor reads ahead, and memory stays bounded by that window.
+     *
+     * @return the number of invoices written
+     */
+    public static long generateDetailedInvoiceReport(InvoiceCursor cursor, ReportWriter out, boolean parallel)
+            throws SQLException, IOException {
+        writeDetailedHeader(out);
+        OrderedRenderer renderer = parallel ? new OrderedRenderer(out) : null;
+        Invoice invoice;
+        while ((invoice = cursor.next()) != null) {
+            if (renderer != null) {
+                renderer.submit(invoice);
+            } else {
+                invoice.writeTo(out);
+                out.newLine();
+            }
+        }
+        if (renderer != null) {
+            renderer.finish();
+        }
+        out.flush();
+        return cursor.getCount();
+    }
+
+    private static void writeDetailedHeader(ReportWriter out) throws IOException {
+        out.append(RULE).newLine();
+        out.append("| ").padRight("Detailed Invoice Report", 60).append(" |").newLine();
+        out.append(RULE).newLine().newLine();
+    }
+
+    /**
+     * Writes the summary report, highest grand total first, in a
+     * machine-readable format; see {@link ReportExporter} for the fields.
+     * The stream is flushed but not closed.
+     */
+    public void exportSummaryReport(ReportFormat format, OutputStream out) throws IOException {
+        ReportExporter exporter = new ReportExporter(format, out);
+        exporter.startSummary();
+        for (Invoice invoice : rankByTotal(invoices)) {
+            exporter.summary(invoice);
+        }
+        exporter.finish();
+    }
 
+    /**
+     * Writes the customer report in a machine-readable format.
+     * The stream is flushed but not closed.
+     */
+    public void exportCustomerReport(ReportFormat format, OutputStream out) throws IOException {
+        ReportExporter exporter = new ReportExporter(format, out);
+        exporter.startCustomers();
+        for (Map.Entry<Company, CustomerTotals> entry : customerTotals().entrySet()) {
+            exporter.customer(entry.getKey(), entry.getValue().invoiceCount, entry.getValue().grandTotalCents);
+        }
+        exporter.finish();
+    }
+
+    /**
+     * Writes the detailed report in a machine-readable format.
+     * The stream is flushed but not closed.
+     */
+    public void exportDetailedInvoiceReport(ReportFormat format, OutputStream out) throws IOException {
+        ReportExporter exporter = new ReportExporter(format, out);
+        exporter.startDetailed();
         for (Invoice invoice : invoices) {
-            System.out.println(invoice.toString());
+            exporter.invoice(invoice);
+        }
+        exporter.finish();
+    }
+
+    /**
+     * Writes the detailed report for every invoice a cursor yields in a
+     * machine-readable format, one invoice at a time.
+     *
+     * @return the number of invoices written
+     */
+    public static long exportDetailedInvoiceReport(InvoiceCursor cursor, ReportFormat format, OutputStream out)
+            throws SQLException, IOException {
+        ReportExporter exporter = new ReportExporter(format, out);
+        exporter.startDetailed();
+        Invoice invoice;
+        while ((invoice = cursor.next()) != null) {
+            exporter.invoice(invoice);
+        }
+        exporter.finish();
+        return cursor.getCount();
+    }
+
+    /**
+     * Returns a new list of the invoices ordered by grand total, highest
+     * first. The sort is stable: invoices with equal totals keep their
+     * relative order. Each total is read once, not once per comparison.
+     */
+    public static List<Invoice> rankByTotal(List<Invoice> invoices) {
+        Ranked[] ranked = new Ranked[invoices.size()];
+        for (int i = 0; i < ranked.length; i++) {
+            ranked[i] = new Ranked(invoices.get(i), i);
+        }
+        Arrays.sort(ranked, Ranked.BEST_FIRST);
+        return toInvoices(ranked);
+    }
+
+    /**
+     * Returns the {@code k} invoices with the highest grand totals, highest
+     * first, ties broken as in {@link #rankByTotal}. Uses a heap bounded to
+     * {@code k} entries, so it runs in O(n log k) and never copies the whole list.
+     */
+    public static List<Invoice> topByTotal(List<Invoice> invoices, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative");
+        }
+        // min-heap on rank: the head is the weakest invoice kept so far
+        PriorityQueue<Ranked> heap = new PriorityQueue<>(Math.max(1, Math.min(k, invoices.size())),
+                Ranked.BEST_FIRST.reversed());
+        for (int i = 0; i < invoices.size() && k > 0; i++) {
+            Ranked candidate = new Ranked(invoices.get(i), i);
+            if (heap.size() < k) {
+                heap.add(candidate);
+            } else if (Ranked.BEST_FIRST.compare(candidate, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(candidate);
+            }
+        }
+        Ranked[] ranked = heap.toArray(new Ranked[0]);
+        Arrays.sort(ranked, Ranked.BEST_FIRST);
+        return toInvoices(ranked);
+    }
+
+    private static List<Invoice> toInvoices(Ranked[] ranked) {
+        List<Invoice> result = new ArrayList<>(ranked.length);
+        for (Ranked r : ranked) {
+            result.add(r.invoice);
+        }
+        return result;
+    }
+
+    /** @return each customer's invoice count and grand total, in order of first appearance */
+    private Map<Company, CustomerTotals> customerTotals() {
+        return invoiceStream()
+                .collect(Collectors.toMap(Invoice::getCustomer,
+                        inv -> new CustomerTotals(1, inv.calculateGrandTotalCents()),
+                        CustomerTotals::plus,
+                        LinkedHashMap::new));
+    }
+
+    private Stream<Invoice> invoiceStream() {
+        return parallel ? invoices.parallelStream() : invoices.stream();
+    }
+
+    /**
+     * Renders invoice blocks on the common fork-join pool, each into its own
+     * buffer, and writes them out in submission order. Once
+     * {@link #RENDER_WINDOW} blocks are in flight, submitting another first
+     * waits for and writes the oldest, so memory stays bounded and the
+     * output is byte-identical to rendering on one thread.
+     */
+    private static class OrderedRenderer {
+        private final ReportWriter out;
+        private final ArrayDeque<CompletableFuture<String>> inFlight = new ArrayDeque<>();
+
+        OrderedRenderer(ReportWriter out) {
+            this.out = out;
+        }
+
+        void submit(Invoice invoice) throws IOException {
+            if (inFlight.size() >= RENDER_WINDOW) {
+                writeOldest();
+            }
+            inFlight.add(CompletableFuture.supplyAsync(() -> ReportWriter.render(invoice::writeTo)));
+        }
+
+        /** Writes every block still in flight. */
+        void finish() throws IOException {
+            while (!inFlight.isEmpty()) {
+                writeOldest();
+            }
+        }
+
+        private void writeOldest() throws IOException {
+            String block;
+            try {
+                block = inFlight.poll().join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+            out.append(block).newLine();
+        }
+    }
+
+    /** An invoice with its grand total and its position in the input. */
+    private static class Ranked {
+        /** Highest total first, then earliest position. */
+        static final Comparator<Ranked> BEST_FIRST = (a, b) -> {
+            int cmp = Long.compare(b.total, a.total);
+            return cmp != 0 ? cmp : Integer.compare(a.position, b.position);
+        };
+
+        private final Invoice invoice;
+        private final long total;
+        private final int position;
+
+        Ranked(Invoice invoice, int position) {
+            this.invoice = invoice;
+            this.total = invoice.calculateGrandTotalCents();
+            this.position = position;
+        }
+    }
+
+    /**
+     * Running invoice count and grand total for one customer. Partial totals
+     * from different threads are combined with {@link #plus}; the merge is
+     * ordered, so customers are listed by first appearance in both modes.
+     */
+    private static class CustomerTotals {
+        private final int invoiceCount;
+        private final long grandTotalCents;
+
+        CustomerTotals(int invoiceCount, long grandTotalCents) {
+            this.invoiceCount = invoiceCount;
+            this.grandTotalCents = grandTotalCents;
+        }
+
+        CustomerTotals plus(CustomerTotals other) {
+            return new CustomerTotals(invoiceCount + other.invoiceCount,
+                    grandTotalCents + other.grandTotalCents);
         }
     }
 }
@@ -0,0 +1,142 @@
+// CsvReader.java
+package com.vgb;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming CSV reader used by the flat-file loaders.
+ * Rows are parsed one at a time out of a fixed-size character buffer, so
+ * memory use is bounded by the longest row rather than the file size.
+ *
+ * Fields may be wrapped in double quotes to embed commas, line breaks or
+ * doubled ("") quote characters. Blank lines are skipped and CRLF, LF and
+ * CR line endings are all accepted.
+ */
+public class CsvReader implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Reader in;
+    private final char[] buf;
+    private int pos;
+    private int limit;
+    private long rowNumber;
+
+    private final StringBuilder field = new StringBuilder();
+    private final List<String> row = new ArrayList<>();
+
+    public CsvReader(Reader in) {
+        this(in, BUFFER_SIZE);
+    }
+
+    public CsvReader(Reader in, int bufferSize) {
+        this.in = in;
+        this.buf = new char[bufferSize];
+    }
+
+    /**
+     * Opens a UTF-8 CSV file for streaming.
+     *
+     * @param filePath path of the file to read
+     * @return a reader positioned at the first row
+     * @throws IOException if the file cannot be opened
+     */
+    public static CsvReader open(String filePath) throws IOException {
+        return new CsvReader(Files.newBufferedReader(Paths.get(filePath), StandardCharsets.UTF_8));
+    }
+
+    /** @return the 1-based number of the row most recently returned */
+    public long getRowNumber() {
+        return rowNumber;
+    }
+
+    /**
+     * Reads the next non-blank row.
+     *
+     * @return the row's fields, or null once the input is exhausted
+     * @throws IOException on a read failure or an unterminated quoted field
+     */
+    public String[] readRow() throws IOException {
+        row.clear();
+        field.setLength(0);
+
+        int c = read();
+        // skip blank lines between rows
+        while (c == '\r' || c == '\n') {
+            c = read();
+        }
+        if (c < 0) {
+            return null;
+        }
+        rowNumber++;
+
+        boolean quoted = false;
+        boolean afterQuote = false;
+        while (true) {
+            if (quoted) {
+                if (c < 0) {
+                    throw new IOException("Unterminated quoted field in CSV row " + rowNumber);
+                }
+                if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        afterQuote = true;
+                        c = next;
+                        continue;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == ',') {
+                endField();
+                afterQuote = false;
+            } else if (c == '\r' || c == '\n' || c < 0) {
+                if (c == '\r') {
+                    int next = read();
+                    if (next != '\n' && next >= 0) {
+                        pos--;
+                    }
+                }
+                endField();
+                return row.toArray(new String[0]);
+            } else if (c == '"' && field.length() == 0 && !afterQuote) {
+                quoted = true;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private void endField() {
+        row.add(field.toString());
+        field.setLength(0);
+    }
+
+    /** @return the next character, or -1 at end of input */
+    private int read() throws IOException {
+        if (pos >= limit) {
+            limit = in.read(buf, 0, buf.length);
+            pos = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buf[pos++];
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,57 @@
+package com.vgb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.io.StringReader;
+
+public class CsvReaderTests {
+
+    /**
+     * Tests that quoted fields keep embedded commas, quotes and line breaks.
+     */
+    @Test
+    public void testQuotedFields() throws IOException {
+        String csv = "uuid,name\r\n"
+                + "1,\"Smith, Jones & Co\"\r\n"
+                + "2,\"The \"\"Big\"\" Dig\"\n"
+                + "3,\"Two\nLines\"\n";
+        try (CsvReader reader = new CsvReader(new StringReader(csv), 4)) {
+            reader.readRow();
+            assertEquals("Smith, Jones & Co", reader.readRow()[1]);
+            assertEquals("The \"Big\" Dig", reader.readRow()[1]);
+            assertEquals("Two\nLines", reader.readRow()[1]);
+            assertNull(reader.readRow());
+        }
+    }
+
+    /**
+     * Tests that empty fields are kept, blank lines skipped and rows counted.
+     */
+    @Test
+    public void testEmptyFieldsAndBlankLines() throws IOException {
+        String csv = "a,,c,\r\n\r\n\rx";
+        try (CsvReader reader = new CsvReader(new StringReader(csv))) {
+            String[] first = reader.readRow();
+            assertEquals(4, first.length);
+            assertEquals("", first[1]);
+            assertEquals("", first[3]);
+            assertEquals("x", reader.readRow()[0]);
+            assertEquals(2, reader.getRowNumber());
+            assertNull(reader.readRow());
+        }
+    }
+
+    /**
+     * Tests that a quote left open at end of input is reported.
+     */
+    @Test
+    public void testUnterminatedQuote() throws IOException {
+        try (CsvReader reader = new CsvReader(new StringReader("1,\"oops"))) {
+            assertThrows(IOException.class, reader::readRow);
+        }
+    }
+}
@@ -8,7 +8,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
- * Utility for obtaining a JDBC Connection to MySQL.
+ * Utility for obtaining a JDBC Connection to MySQL from a shared pool.
  */
 public class DBConnection {
 	private static final Logger log = LogManager.getLogger(DBConnection.class);
@@ -28,16 +28,68 @@ public class DBConnection {
     private static final String USER     = "lnash3";
     private static final String PASSWORD = "LukeSQL1!";
 
+    private static final int  POOL_MIN_SIZE           = 1;
+    private static final int  POOL_MAX_SIZE           = 10;
+    private static final long POOL_BORROW_TIMEOUT_MS  = 30_000;
+    private static final long POOL_IDLE_TIMEOUT_MS    = 10 * 60_000;
+    private static final long POOL_LEAK_THRESHOLD_MS  = 60_000;
+
+    private static ConnectionPool pool;
+
     /**
-     * Opens and returns a new Connection.
+     * Borrows a Connection from the shared pool. Closing it returns it to
+     * the pool rather than closing the underlying socket.
      *
      * @return a live JDBC Connection
-     * @throws SQLException if connection fails
+     * @throws SQLException if connection fails or the pool is exhausted
      */
     public static Connection getConnection() throws SQLException {
+        return getPool().borrow();
+    }
+
+    /**
+     * Opens a new, unpooled Connection.
+     *
+     * @return a live JDBC Connection
+     * @throws SQLException if connection fails
+     */
+    public static Connection openConnection() throws SQLException {
         log.debug("Opening database connection to {}", URL);
         return DriverManager.getConnection(URL, USER, PASSWORD);
     }
-}
 
+    /**
+     * @return the shared pool, created with the default settings on first use
+     */
+    public static synchronized ConnectionPool getPool() {
+        if (pool == null) {
+            pool = new ConnectionPool(DBConnection::openConnection,
+                    POOL_MIN_SIZE, POOL_MAX_SIZE,
+                    POOL_BORROW_TIMEOUT_MS, POOL_IDLE_TIMEOUT_MS, POOL_LEAK_THRESHOLD_MS);
+            log.info("Created connection pool (min={}, max={})", POOL_MIN_SIZE, POOL_MAX_SIZE);
+        }
+        return pool;
+    }
+
+    /**
+     * Replaces the shared pool, e.g. with one sized for a bulk import or
+     * backed by a different database. The previous pool is closed.
+     */
+    public static synchronized void setPool(ConnectionPool newPool) {
+        if (pool != null && pool != newPool) {
+            pool.close();
+        }
+        pool = newPool;
+    }
 
+    /**
+     * Closes the shared pool and all of its idle connections.
+     */
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            log.info("Shutting down connection pool: {}", pool.getStats());
+            pool.close();
+            pool = null;
+        }
+    }
+}
@@ -1,62 +1,489 @@
 // DataConverter.java
 package com.vgb;
 
+import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
 import com.thoughtworks.xstream.XStream;
-import com.thoughtworks.xstream.io.xml.DomDriver;
-import java.io.FileWriter;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.io.xml.PrettyPrintWriter;
+import com.thoughtworks.xstream.io.xml.StaxDriver;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
  * Converts data loaded from flat files into JSON and XML.
+ *
+ * The Gson and XStream instances are configured once and shared; both are
+ * thread-safe once set up. Output is streamed element by element, JSON
+ * through a JsonWriter and XML through a StAX writer, so a large export
+ * never exists in memory as a whole. Output is compact unless pretty
+ * printing is asked for (pass {@code --pretty} to main).
  */
 public class DataConverter {
 	private static final Logger log = LogManager.getLogger(DataConverter.class);
 
+    private static final Gson GSON = new GsonBuilder().create();
+    private static final Gson PRETTY_GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final StaxDriver STAX = new StaxDriver();
+    private static final XStream XSTREAM = createXStream();
+
+    /** Invoices per chunk file when exporting invoices from {@link #main}. */
+    public static final int DEFAULT_INVOICES_PER_CHUNK = 100_000;
+
+    private static XStream createXStream() {
+        XStream xstream = new XStream(STAX);
+        xstream.alias("data", List.class);
+        // elements are marshalled one at a time, so references between them could not be resolved anyway
+        xstream.setMode(XStream.NO_REFERENCES);
+        return xstream;
+    }
 
     public static void main(String[] args) {
         String dataDir = "data";
-        DataLoader data = new DataLoader();
+        boolean pretty = args.length > 0 && "--pretty".equals(args[0]);
 
         try {
-            data.loadFromFiles(dataDir);
-            List<Item> items     = data.getItems();
-            List<Person> persons = data.getPersons();
-            List<Company> companies = data.getCompanies();
-            
-            serializeToJson(items, "data/items.json");
-            serializeToXml(items, "data/items.xml");
+            convertAll(dataDir, dataDir, pretty);
+        } catch (IOException e) {
+            log.error("Error converting data from flat files", e);
+        }
+    }
 
-            serializeToJson(persons, "data/persons.json");
-            serializeToXml(persons, "data/persons.xml");
+    /**
+     * Converts Items, Persons, Companies and Invoices to JSON and XML,
+     * running every independent step at once, each on its own virtual
+     * thread. Items and persons are parsed in parallel; each dataset's two
+     * outputs are written as soon as it is loaded, so persons are being
+     * written while companies (which need them) are still being parsed.
+     * Invoices, with their lines, go to chunk files of
+     * {@link #DEFAULT_INVOICES_PER_CHUNK}. Each output's size and
+     * throughput is logged.
+     *
+     * @param dataDir directory holding the CSV files
+     * @param outDir  directory to write items/persons/companies .json and
+     *                .xml, and invoices-NNNNN .json and .xml chunks, to
+     * @return one entry per file written
+     * @throws IOException if any file cannot be read or written
+     */
+    public static List<Output> convertAll(String dataDir, String outDir, boolean pretty) throws IOException {
+        long start = System.nanoTime();
+        List<Output> outputs = new ArrayList<>();
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            // persons and companies resolve through one registry, items through their own,
+            // so the two parse chains never share a (non-thread-safe) registry
+            EntityRegistry people = new EntityRegistry();
+            CompletableFuture<List<Item>> items = CompletableFuture.supplyAsync(
+                    unchecked(() -> DataLoader.parseItems(dataDir + "/Items.csv", new EntityRegistry())), pool);
+            CompletableFuture<List<Person>> persons = CompletableFuture.supplyAsync(
+                    unchecked(() -> DataLoader.parsePersons(dataDir + "/Persons.csv", people)), pool);
+            CompletableFuture<List<Company>> companies = persons.thenApplyAsync(
+                    p -> unchecked(() -> DataLoader.parseCompanies(dataDir + "/Companies.csv", people)).get(), pool);
 
-            serializeToJson(companies, "data/companies.json");
-            serializeToXml(companies, "data/companies.xml");
+            // invoices need every other dataset: items join the people registry once companies are done
+            CompletableFuture<List<Invoice>> invoices = companies.thenCombineAsync(items,
+                    (c, i) -> unchecked(() -> {
+                        i.forEach(people::addItem);
+                        List<Invoice> list = DataLoader.parseInvoices(dataDir + "/Invoices.csv", people);
+                        DataLoader.parseInvoiceItems(dataDir + "/InvoiceItems.csv", people);
+                        return list;
+                    }).get(), pool);
 
-        } catch (IOException e) {
-            log.error("Error loading data from flat files", e);
+            List<CompletableFuture<Output>> writes = new ArrayList<>();
+            writes.addAll(writeBoth(items, outDir + "/items", pretty, pool));
+            writes.addAll(writeBoth(persons, outDir + "/persons", pretty, pool));
+            writes.addAll(writeBoth(companies, outDir + "/companies", pretty, pool));
+            CompletableFuture<List<Output>> invoiceJson = invoices.thenApplyAsync(list -> unchecked(() ->
+                    exportInvoicesToJson(list, outDir + "/invoices", DEFAULT_INVOICES_PER_CHUNK, pretty)).get(), pool);
+            CompletableFuture<List<Output>> invoiceXml = invoices.thenApplyAsync(list -> unchecked(() ->
+                    exportInvoicesToXml(list, outDir + "/invoices", DEFAULT_INVOICES_PER_CHUNK, pretty)).get(), pool);
+            for (CompletableFuture<Output> write : writes) {
+                outputs.add(write.join());
+            }
+            outputs.addAll(invoiceJson.join());
+            outputs.addAll(invoiceXml.join());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
         }
+        log.info("Converted {} files in {} ms", outputs.size(), (System.nanoTime() - start) / 1_000_000);
+        return outputs;
+    }
+
+    /** Schedules the .json and .xml writes of a dataset for when it has loaded. */
+    private static List<CompletableFuture<Output>> writeBoth(CompletableFuture<? extends List<?>> data,
+                                                           String basePath, boolean pretty, Executor pool) {
+        return Arrays.asList(
+                data.thenApplyAsync(list -> unchecked(() -> writeJsonFile(list, basePath + ".json", pretty)).get(), pool),
+                data.thenApplyAsync(list -> unchecked(() -> writeXmlFile(list, basePath + ".xml", pretty)).get(), pool));
     }
 
-    private static void serializeToJson(Object data, String filePath) {
-        try (FileWriter writer = new FileWriter(filePath)) {
-            new GsonBuilder().setPrettyPrinting().create().toJson(data, writer);
+    /** Adapts an I/O step for CompletableFuture, rethrowing IOException unchecked. */
+    private static <T> Supplier<T> unchecked(Callable<T> step) {
+        return () -> {
+            try {
+                return step.call();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    /** Writes the elements as a UTF-8 JSON array file; failures are logged. */
+    public static void serializeToJson(Iterable<?> data, String filePath, boolean pretty) {
+        try {
+            writeJsonFile(data, filePath, pretty);
         } catch (IOException e) {
             log.error("JSON serialization failed", e);
         }
     }
 
-    private static void serializeToXml(Object data, String filePath) {
-        try (FileWriter writer = new FileWriter(filePath)) {
-            XStream xstream = new XStream(new DomDriver());
-            xstream.alias("data", List.class);
-            xstream.toXML(data, writer);
+    /** Writes the elements as a UTF-8 XML file under a {@code <data>} root; failures are logged. */
+    public static void serializeToXml(Iterable<?> data, String filePath, boolean pretty) {
+        try {
+            writeXmlFile(data, filePath, pretty);
         } catch (IOException e) {
             log.error("XML serialization failed", e);
         }
     }
-}
 
+    private static Output writeJsonFile(Iterable<?> data, String filePath, boolean pretty) throws IOException {
+        long start = System.nanoTime();
+        int count;
+        try (Writer writer = Files.newBufferedWriter(Paths.get(filePath), StandardCharsets.UTF_8)) {
+            count = writeJson(data, writer, pretty);
+        }
+        return Output.finished(filePath, count, start);
+    }
+
+    private static Output writeXmlFile(Iterable<?> data, String filePath, boolean pretty) throws IOException {
+        long start = System.nanoTime();
+        int count;
+        try (Writer writer = Files.newBufferedWriter(Paths.get(filePath), StandardCharsets.UTF_8)) {
+            count = writeXml(data, writer, pretty);
+        }
+        return Output.finished(filePath, count, start);
+    }
+
+    /**
+     * Exports invoices, with their lines, as JSON chunk files of at most
+     * {@code invoicesPerChunk} invoices each; see {@link #writeInvoicesJson}.
+     * @see #exportInvoicesToXml
+     */
+    public static List<Output> exportInvoicesToJson(Iterable<Invoice> invoices, String basePath,
+                                                    int invoicesPerChunk, boolean pretty) throws IOException {
+        return exportChunks(invoices, basePath, ".json", invoicesPerChunk,
+                (chunk, out) -> writeInvoicesJson(chunk, out, pretty));
+    }
+
+    /**
+     * Exports invoices, with their lines, as XML chunk files of at most
+     * {@code invoicesPerChunk} invoices each; see {@link #writeInvoicesXml}.
+     *
+     * Chunks are named basePath-00000.xml, basePath-00001.xml and so on, each
+     * a complete document that can be read on its own, so file size is
+     * bounded however large the export. The source is pulled one chunk at a
+     * time, and full chunks are written on virtual threads while the next is
+     * gathered, at most one chunk per core in flight. The chunks add no
+     * more than that to memory; whether the invoices themselves are all in
+     * memory is up to the source, and {@link #convertAll} does hold them,
+     * since invoice lines come from a separate file.
+     *
+     * @return one entry per chunk file, in order
+     */
+    public static List<Output> exportInvoicesToXml(Iterable<Invoice> invoices, String basePath,
+                                                   int invoicesPerChunk, boolean pretty) throws IOException {
+        return exportChunks(invoices, basePath, ".xml", invoicesPerChunk,
+                (chunk, out) -> writeInvoicesXml(chunk, out, pretty));
+    }
+
+    /** Writes a chunk of invoices to an open file. */
+    @FunctionalInterface
+    private interface ChunkWriter {
+        int write(List<Invoice> chunk, Writer out) throws IOException;
+    }
+
+    private static List<Output> exportChunks(Iterable<Invoice> invoices, String basePath, String suffix,
+                                             int invoicesPerChunk, ChunkWriter writer) throws IOException {
+        if (invoicesPerChunk <= 0) {
+            throw new IllegalArgumentException("invoicesPerChunk must be positive");
+        }
+        int maxInFlight = Runtime.getRuntime().availableProcessors();
+        List<Output> outputs = new ArrayList<>();
+        ArrayDeque<Future<Output>> inFlight = new ArrayDeque<>();
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            Iterator<Invoice> source = invoices.iterator();
+            int index = 0;
+            while (source.hasNext()) {
+                List<Invoice> chunk = new ArrayList<>(Math.min(invoicesPerChunk, 4096));
+                while (chunk.size() < invoicesPerChunk && source.hasNext()) {
+                    chunk.add(source.next());
+                }
+                if (inFlight.size() >= maxInFlight) {
+                    outputs.add(awaitOutput(inFlight.poll()));
+                }
+                String filePath = String.format("%s-%05d%s", basePath, index++, suffix);
+                inFlight.add(pool.submit(() -> {
+                    long start = System.nanoTime();
+                    int count;
+                    try (Writer out = Files.newBufferedWriter(Paths.get(filePath), StandardCharsets.UTF_8)) {
+                        count = writer.write(chunk, out);
+                    }
+                    return Output.finished(filePath, count, start);
+                }));
+            }
+            while (!inFlight.isEmpty()) {
+                outputs.add(awaitOutput(inFlight.poll()));
+            }
+        }
+        return outputs;
+    }
+
+    private static Output awaitOutput(Future<Output> write) throws IOException {
+        try {
+            return write.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing invoice chunks", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Error writing invoice chunk", e.getCause());
+        }
+    }
+
+    /**
+     * Streams invoices as a JSON array. Each invoice is an object with
+     * uuid, customerUuid, salesPersonUuid, date and an items array; each
+     * line has the itemUuid, its type, and the type's own values: hours
+     * for a Rental, startDate and endDate for a Lease, quantity for a
+     * Material, cost for a Contract. Customer, sales person and catalog
+     * item are referenced by UUID, as in the CSV files.
+     *
+     * @return the number of invoices written
+     */
+    public static int writeInvoicesJson(Iterable<Invoice> invoices, Writer out, boolean pretty) throws IOException {
+        JsonWriter json = (pretty ? PRETTY_GSON : GSON).newJsonWriter(out);
+        int count = 0;
+        json.beginArray();
+        for (Invoice invoice : invoices) {
+            json.beginObject();
+            json.name("uuid").value(invoice.getInvoiceUuid().toString());
+            json.name("customerUuid").value(invoice.getCustomer() == null
+                    ? null : invoice.getCustomer().getUuid().toString());
+            json.name("salesPersonUuid").value(invoice.getSalesPerson() == null
+                    ? null : invoice.getSalesPerson().getUuid().toString());
+            json.name("date").value(invoice.getInvoiceDate().toString());
+            json.name("items").beginArray();
+            for (Item item : invoice.getItems()) {
+                json.beginObject();
+                json.name("itemUuid").value(item.getUuid());
+                byte type = ColumnarInvoiceStore.typeOf(item);
+                json.name("type").value(ColumnarInvoiceStore.typeName(type));
+                switch (type) {
+                    case ColumnarInvoiceStore.RENTAL:
+                        json.name("hours").value(((Rental) item).getHours());
+                        break;
+                    case ColumnarInvoiceStore.LEASE:
+                        json.name("startDate").value(((Lease) item).getStartDate().toString());
+                        json.name("endDate").value(((Lease) item).getEndDate().toString());
+                        break;
+                    case ColumnarInvoiceStore.MATERIAL:
+                        json.name("quantity").value(((Material) item).getQuantity());
+                        break;
+                    case ColumnarInvoiceStore.CONTRACT:
+                        json.name("cost").value(item.getCost());
+                        break;
+                    default:
+                        break;
+                }
+                json.endObject();
+            }
+            json.endArray();
+            json.endObject();
+            count++;
+        }
+        json.endArray();
+        json.flush();
+        return count;
+    }
+
+    /**
+     * Streams invoices as XML: {@code <invoice>} elements under a
+     * {@code <data>} root, with the same fields as {@link #writeInvoicesJson}
+     * as child elements and the lines as {@code <item>} elements inside
+     * {@code <items>}. Absent customers or sales persons are left out.
+     *
+     * @return the number of invoices written
+     */
+    public static int writeInvoicesXml(Iterable<Invoice> invoices, Writer out, boolean pretty) {
+        HierarchicalStreamWriter xml = pretty ? new PrettyPrintWriter(out) : STAX.createWriter(out);
+        int count = 0;
+        xml.startNode("data");
+        for (Invoice invoice : invoices) {
+            xml.startNode("invoice");
+            element(xml, "uuid", invoice.getInvoiceUuid().toString());
+            if (invoice.getCustomer() != null) {
+                element(xml, "customerUuid", invoice.getCustomer().getUuid().toString());
+            }
+            if (invoice.getSalesPerson() != null) {
+                element(xml, "salesPersonUuid", invoice.getSalesPerson().getUuid().toString());
+            }
+            element(xml, "date", invoice.getInvoiceDate().toString());
+            xml.startNode("items");
+            for (Item item : invoice.getItems()) {
+                xml.startNode("item");
+                element(xml, "itemUuid", item.getUuid());
+                byte type = ColumnarInvoiceStore.typeOf(item);
+                element(xml, "type", ColumnarInvoiceStore.typeName(type));
+                switch (type) {
+                    case ColumnarInvoiceStore.RENTAL:
+                        element(xml, "hours", Double.toString(((Rental) item).getHours()));
+                        break;
+                    case ColumnarInvoiceStore.LEASE:
+                        element(xml, "startDate", ((Lease) item).getStartDate().toString());
+                        element(xml, "endDate", ((Lease) item).getEndDate().toString());
+                        break;
+                    case ColumnarInvoiceStore.MATERIAL:
+                        element(xml, "quantity", Integer.toString(((Material) item).getQuantity()));
+                        break;
+                    case ColumnarInvoiceStore.CONTRACT:
+                        element(xml, "cost", Double.toString(item.getCost()));
+                        break;
+                    default:
+                        break;
+                }
+                xml.endNode();
+            }
+            xml.endNode();
+            xml.endNode();
+            count++;
+        }
+        xml.endNode();
+        xml.flush();
+        return count;
+    }
+
+    private static void element(HierarchicalStreamWriter xml, String name, String value) {
+        xml.startNode(name);
+        xml.setValue(value);
+        xml.endNode();
+    }
+
+    /** One written file: how many elements, how many bytes, and how long it took. */
+    public static class Output {
+        private final String filePath;
+        private final int elements;
+        private final long bytes;
+        private final long nanos;
+
+        Output(String filePath, int elements, long bytes, long nanos) {
+            this.filePath = filePath;
+            this.elements = elements;
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+
+        /** Measures a file that has just been written and logs its throughput. */
+        static Output finished(String filePath, int elements, long startNanos) throws IOException {
+            Output output = new Output(filePath, elements, Files.size(Paths.get(filePath)),
+                    System.nanoTime() - startNanos);
+            log.info("{}", output);
+            return output;
+        }
+
+        public String getFilePath() {
+            return filePath;
+        }
+
+        public int getElements() {
+            return elements;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        /** @return megabytes (10^6 bytes) written per second */
+        public double getMegabytesPerSecond() {
+            return nanos == 0 ? 0 : bytes * 1000.0 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d elements, %d bytes in %.1f ms (%.1f MB/s)",
+                    filePath, elements, bytes, nanos / 1e6, getMegabytesPerSecond());
+        }
+    }
+
+    /**
+     * Streams the elements as a JSON array, one element at a time, each
+     * serialized by its runtime class. The writer is flushed, not closed.
+     *
+     * @return the number of elements written
+     */
+    public static int writeJson(Iterable<?> data, Writer out, boolean pretty) throws IOException {
+        Gson gson = pretty ? PRETTY_GSON : GSON;
+        JsonWriter json = gson.newJsonWriter(out);
+        int count = 0;
+        json.beginArray();
+        for (Object element : data) {
+            gson.toJson(element, element.getClass(), json);
+            count++;
+        }
+        json.endArray();
+        json.flush();
+        return count;
+    }
+
+    /**
+     * Streams the elements as XML under a {@code <data>} root, one element
+     * at a time; compact output goes through StAX. The writer is flushed,
+     * not closed.
+     *
+     * @return the number of elements written
+     */
+    public static int writeXml(Iterable<?> data, Writer out, boolean pretty) {
+        HierarchicalStreamWriter xml = pretty ? new PrettyPrintWriter(out) : STAX.createWriter(out);
+        int count = 0;
+        xml.startNode("data");
+        for (Object element : data) {
+            XSTREAM.marshal(element, xml);
+            count++;
+        }
+        xml.endNode();
+        xml.flush();
+        return count;
+    }
+}
@@ -5,14 +5,23 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.time.LocalDate;
 import java.util.*;
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -26,30 +35,412 @@ public class DataLoader {
 
 	private static final Logger log = LogManager.getLogger(DataLoader.class);
 
+    private static final String PERSON_SQL =
+        "SELECT uuid, firstName, lastName, phone, emails FROM Person";
+    private static final String COMPANY_SQL =
+        "SELECT c.uuid, c.contactUuid, c.name, " +
+        "       a.street, a.city, a.stateCode AS state, a.zipCode AS zip " +
+        "  FROM Company c " +
+        "  LEFT JOIN Address a ON c.addressId = a.id";
+    private static final String ITEM_SQL =
+        "SELECT uuid, type, name, field1, field2, field3 FROM Item";
+    private static final String INVOICE_SQL =
+        "SELECT uuid, customerUuid, salesPersonUuid, date FROM Invoice";
+    private static final String INVOICE_ITEM_SQL =
+        "SELECT invoiceUuid, itemUuid, field1, field2, field3 FROM InvoiceItems";
+    private static final String INVOICE_GRAPH_COLUMNS =
+        "SELECT i.uuid AS invoiceUuid, i.date, " +
+        "       c.uuid AS companyUuid, c.name AS companyName, " +
+        "       a.street, a.city, a.stateCode AS state, a.zipCode AS zip, " +
+        "       cp.uuid AS contactUuid, cp.firstName AS contactFirstName, cp.lastName AS contactLastName, " +
+        "       cp.phone AS contactPhone, cp.emails AS contactEmails, " +
+        "       sp.uuid AS salesUuid, sp.firstName AS salesFirstName, sp.lastName AS salesLastName, " +
+        "       sp.phone AS salesPhone, sp.emails AS salesEmails, " +
+        "       it.uuid AS itemUuid, it.type AS itemType, it.name AS itemName, " +
+        "       it.field1 AS itemField1, it.field2 AS itemField2, it.field3 AS itemField3, " +
+        "       ii.field1 AS lineField1, ii.field2 AS lineField2, ii.field3 AS lineField3 ";
+    private static final String INVOICE_GRAPH_JOINS =
+        "  LEFT JOIN Company c ON i.customerUuid = c.uuid " +
+        "  LEFT JOIN Address a ON c.addressId = a.id " +
+        "  LEFT JOIN Person cp ON c.contactUuid = cp.uuid " +
+        "  LEFT JOIN Person sp ON i.salesPersonUuid = sp.uuid " +
+        "  LEFT JOIN InvoiceItems ii ON ii.invoiceUuid = i.uuid " +
+        "  LEFT JOIN Item it ON ii.itemUuid = it.uuid";
+    private static final String INVOICE_GRAPH_SQL =
+        INVOICE_GRAPH_COLUMNS + "  FROM Invoice i " + INVOICE_GRAPH_JOINS;
+    /**
+     * Every column is QUOTEd: CONCAT_WS skips NULLs, so without it a NULL
+     * would shift the following columns and (NULL, '5') would hash like
+     * ('5', NULL). QUOTE turns NULL into a bare NULL and quotes the rest.
+     */
+    private static final String INVOICE_HASH_SQL =
+        "SELECT i.uuid, MD5(CONCAT_WS('|', QUOTE(i.customerUuid), QUOTE(i.salesPersonUuid), QUOTE(i.date), " +
+        "       QUOTE(MAX(c.name)), " +
+        "       GROUP_CONCAT(CONCAT_WS(',', QUOTE(ii.itemUuid), QUOTE(ii.field1), QUOTE(ii.field2), " +
+        "                              QUOTE(ii.field3), QUOTE(it.type), QUOTE(it.name), " +
+        "                              QUOTE(it.field1), QUOTE(it.field2), QUOTE(it.field3)) " +
+        "                    ORDER BY ii.itemUuid, ii.field1, ii.field2, ii.field3 SEPARATOR ';'))) AS hash " +
+        "  FROM Invoice i " +
+        "  LEFT JOIN Company c ON i.customerUuid = c.uuid " +
+        "  LEFT JOIN InvoiceItems ii ON ii.invoiceUuid = i.uuid " +
+        "  LEFT JOIN Item it ON ii.itemUuid = it.uuid " +
+        " GROUP BY i.uuid, i.customerUuid, i.salesPersonUuid, i.date";
+    /** Invoices per query when loading by UUID, keeping IN lists a manageable size */
+    private static final int UUID_BATCH_SIZE = 1000;
+
+    /**
+     * Fetch size that makes MySQL Connector/J stream a result set row by row
+     * instead of buffering all of it.
+     */
+    public static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
 
     private List<Person> persons;
     private List<Company> companies;
     private List<Item> items;
     private List<Invoice> invoices;
+    private final EntityRegistry registry = new EntityRegistry();
 
     public void loadAllData() throws SQLException {
+        registry.clear();
         try (Connection conn = DBConnection.getConnection()) {
             log.info("Loading persons");
-            persons = loadPersons(conn);
+            persons = loadPersons(conn, registry);
             log.info("Loading companies");
-            companies = loadCompanies(conn, persons);
+            companies = loadCompanies(conn, registry);
             log.info("Loading items");
-            items = loadItems(conn);
+            items = loadItems(conn, registry);
             log.info("Loading invoices");
-            invoices = loadInvoices(conn, companies, persons);
+            invoices = loadInvoices(conn, registry);
             log.info("Loading invoice items");
-            loadInvoiceItems(conn, invoices, items);
+            loadInvoiceItems(conn, registry);
+        } catch (SQLException e) {
+            log.error("SQL error loading data", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Loads the same data as {@link #loadAllData()}, but runs the five table
+     * SELECTs at once, each on its own virtual thread and pooled connection.
+     * References are resolved only after every table's rows have arrived, so
+     * wall-clock time is roughly that of the slowest table.
+     */
+    public void loadAllDataConcurrently() throws SQLException {
+        registry.clear();
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            log.info("Loading all tables concurrently");
+            Future<List<Person>> personRows    = pool.submit(() -> query(PERSON_SQL, DataLoader::readPerson));
+            Future<List<Item>> itemRows        = pool.submit(() -> query(ITEM_SQL, DataLoader::readItem));
+            Future<List<String[]>> companyRows = pool.submit(() -> query(COMPANY_SQL, DataLoader::readRow));
+            Future<List<String[]>> invoiceRows = pool.submit(() -> query(INVOICE_SQL, DataLoader::readRow));
+            Future<List<String[]>> lineRows    = pool.submit(() -> query(INVOICE_ITEM_SQL, DataLoader::readRow));
+
+            persons = await(personRows);
+            persons.forEach(registry::addPerson);
+            items = await(itemRows);
+            items.forEach(registry::addItem);
+            companies = resolveCompanies(await(companyRows), registry, false);
+            invoices = resolveInvoices(await(invoiceRows), registry);
+            for (String[] parts : await(lineRows)) {
+                addInvoiceItem(parts, registry);
+            }
         } catch (SQLException e) {
             log.error("SQL error loading data", e);
             throw e;
         }
     }
 
+    /**
+     * Loads invoices together with their customers, salespeople and items
+     * in one JOIN query, streamed with {@link #STREAMING_FETCH_SIZE}.
+     */
+    public void loadInvoicesJoined() throws SQLException {
+        loadInvoicesJoined(STREAMING_FETCH_SIZE);
+    }
+
+    /**
+     * Loads invoices together with their customers, salespeople and items in
+     * a single server-side JOIN, building each Invoice as its rows arrive on
+     * a forward-only, read-only result set. Only the persons, companies and
+     * items that some invoice references are loaded.
+     *
+     * @param fetchSize JDBC fetch size hint; {@link #STREAMING_FETCH_SIZE}
+     *                  streams rows, a positive size needs useCursorFetch=true
+     */
+    public void loadInvoicesJoined(int fetchSize) throws SQLException {
+        registry.clear();
+        persons = new ArrayList<>();
+        companies = new ArrayList<>();
+        items = new ArrayList<>();
+        invoices = new ArrayList<>();
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(INVOICE_GRAPH_SQL,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(fetchSize);
+            log.info("Loading invoices with a single joined query");
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    addJoinedRow(rs);
+                }
+            }
+        } catch (SQLException e) {
+            log.error("SQL error loading data", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Loads only the invoices matching a query, with their line items and
+     * the persons, companies and items they reference. The filters and
+     * paging run on the server; matching invoices are returned ordered by
+     * date, then UUID.
+     *
+     * @param query filter and page criteria
+     * @return the matching invoices, also available from {@link #getInvoices()}
+     */
+    public List<Invoice> loadInvoicesMatching(InvoiceQuery query) throws SQLException {
+        registry.clear();
+        persons = new ArrayList<>();
+        companies = new ArrayList<>();
+        items = new ArrayList<>();
+        invoices = new ArrayList<>();
+        try (Connection conn = DBConnection.getConnection()) {
+            addMatching(conn, query);
+        } catch (SQLException e) {
+            log.error("SQL error loading matching invoices", e);
+            throw e;
+        }
+        log.info("Loaded {} matching invoices", invoices.size());
+        return invoices;
+    }
+
+    /**
+     * Loads the invoices with the given UUIDs, with their line items and the
+     * persons, companies and items they reference, a batch of UUIDs per query.
+     *
+     * @return the invoices found, also available from {@link #getInvoices()}
+     */
+    public List<Invoice> loadInvoicesByUuid(Collection<UUID> uuids) throws SQLException {
+        registry.clear();
+        persons = new ArrayList<>();
+        companies = new ArrayList<>();
+        items = new ArrayList<>();
+        invoices = new ArrayList<>();
+        List<UUID> all = new ArrayList<>(uuids);
+        try (Connection conn = DBConnection.getConnection()) {
+            for (int from = 0; from < all.size(); from += UUID_BATCH_SIZE) {
+                List<UUID> batch = all.subList(from, Math.min(from + UUID_BATCH_SIZE, all.size()));
+                addMatching(conn, new InvoiceQuery().withUuids(batch));
+            }
+        } catch (SQLException e) {
+            log.error("SQL error loading invoices by UUID", e);
+            throw e;
+        }
+        log.info("Loaded {} of {} requested invoices", invoices.size(), all.size());
+        return invoices;
+    }
+
+    /**
+     * Computes a content hash of every invoice on the server: an MD5 over
+     * its header, customer name and lines, including the catalog fields of
+     * each line's item. Only one short row per invoice is transferred, so
+     * comparing against a {@link ReportSnapshot} costs far less than
+     * loading the invoices.
+     *
+     * @return invoice UUID to hex hash
+     */
+    public Map<UUID, String> loadInvoiceHashes() throws SQLException {
+        Map<UUID, String> hashes = new HashMap<>();
+        try (Connection conn = DBConnection.getConnection()) {
+            // long invoices must not have their line list silently truncated
+            setGroupConcatMaxLen(conn, "4294967295");
+            try (PreparedStatement ps = conn.prepareStatement(INVOICE_HASH_SQL,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(STREAMING_FETCH_SIZE);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        hashes.put(UUID.fromString(rs.getString(1)), rs.getString(2));
+                    }
+                }
+            } finally {
+                // the connection goes back to the pool; don't leave the next borrower our setting
+                setGroupConcatMaxLen(conn, "DEFAULT");
+            }
+        } catch (SQLException e) {
+            log.error("SQL error loading invoice hashes", e);
+            throw e;
+        }
+        log.info("Loaded hashes of {} invoices", hashes.size());
+        return hashes;
+    }
+
+    private static void setGroupConcatMaxLen(Connection conn, String value) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("SET SESSION group_concat_max_len = " + value);
+        }
+    }
+
+    /** Runs the invoice graph query for a query's invoices and merges its rows into the loaded graph. */
+    private void addMatching(Connection conn, InvoiceQuery query) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(matchingSql(query),
+                 ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            query.bind(ps, 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    addJoinedRow(rs);
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens a cursor over every invoice, ordered by date, then UUID.
+     * @see #openInvoiceCursor(InvoiceQuery)
+     */
+    public InvoiceCursor openInvoiceCursor() throws SQLException {
+        return openInvoiceCursor(new InvoiceQuery());
+    }
+
+    /**
+     * Opens a cursor that streams the invoices matching a query, ordered by
+     * date, then UUID, one complete invoice at a time. Rows are streamed
+     * with {@link #STREAMING_FETCH_SIZE} and invoices are neither registered
+     * nor kept, so memory use does not grow with the number of invoices;
+     * only the persons, companies and items they reference are loaded and
+     * shared. The cursor holds a pooled connection until it is closed.
+     *
+     * @param query filter and page criteria
+     */
+    public InvoiceCursor openInvoiceCursor(InvoiceQuery query) throws SQLException {
+        registry.clear();
+        persons = new ArrayList<>();
+        companies = new ArrayList<>();
+        items = new ArrayList<>();
+        invoices = new ArrayList<>();
+        Connection conn = DBConnection.getConnection();
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            ps = conn.prepareStatement(matchingSql(query),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAMING_FETCH_SIZE);
+            query.bind(ps, 1);
+            log.info("Streaming invoices with a joined query");
+            rs = ps.executeQuery();
+            return new InvoiceCursor(this, conn, ps, rs);
+        } catch (SQLException | RuntimeException e) {
+            log.error("SQL error opening invoice cursor", e);
+            // a pooled connection's close() leaves its statements open, so close them first
+            closeAfterFailure(e, rs, ps, conn);
+            throw e;
+        }
+    }
+
+    /**
+     * Closes each resource in turn, recording any failure as suppressed by
+     * the one already being thrown.
+     */
+    private static void closeAfterFailure(Exception failure, AutoCloseable... resources) {
+        for (AutoCloseable resource : resources) {
+            if (resource == null) {
+                continue;
+            }
+            try {
+                resource.close();
+            } catch (Exception e) {
+                failure.addSuppressed(e);
+            }
+        }
+    }
+
+    /** @return the invoice graph SELECT restricted to a query's invoices, ordered by date, then UUID */
+    private static String matchingSql(InvoiceQuery query) {
+        return INVOICE_GRAPH_COLUMNS
+                + "  FROM (" + query.toSql() + ") i "
+                + INVOICE_GRAPH_JOINS
+                + " ORDER BY i.date, i.uuid";
+    }
+
+    /**
+     * Merges one row of the invoice graph query into the loaded graph,
+     * reusing any entity an earlier row already created.
+     */
+    private void addJoinedRow(ResultSet rs) throws SQLException {
+        Invoice invoice = registry.getInvoice(rs.getString("invoiceUuid"));
+        if (invoice == null) {
+            invoice = joinedInvoice(rs);
+            registry.addInvoice(invoice);
+            invoices.add(invoice);
+        }
+        addJoinedLine(rs, invoice);
+    }
+
+    /**
+     * Builds the Invoice of a joined row, without lines, creating its
+     * customer and sales person on first sight. The invoice itself is not
+     * registered.
+     */
+    Invoice joinedInvoice(ResultSet rs) throws SQLException {
+        Person contact = joinedPerson(rs, "contact");
+        String companyUuid = rs.getString("companyUuid");
+        Company customer = registry.getCompany(companyUuid);
+        if (customer == null && companyUuid != null) {
+            customer = new Company(companyUuid, contact, rs.getString("companyName"),
+                    new Address(rs.getString("street"), rs.getString("city"),
+                            rs.getString("state"), rs.getString("zip")));
+            registry.addCompany(customer);
+            companies.add(customer);
+        }
+        Person salesPerson = joinedPerson(rs, "sales");
+        return toInvoice(new String[] {
+                rs.getString("invoiceUuid"),
+                customer != null ? customer.getUuid().toString() : null,
+                salesPerson != null ? salesPerson.getUuid().toString() : null,
+                rs.getString("date") }, registry);
+    }
+
+    /**
+     * Adds the line of a joined row, if it has one, to the given invoice,
+     * creating the catalog item on first sight.
+     */
+    void addJoinedLine(ResultSet rs, Invoice invoice) throws SQLException {
+        String itemUuid = rs.getString("itemUuid");
+        if (itemUuid == null) {
+            return; // invoice without lines
+        }
+        Item baseItem = registry.getItem(itemUuid);
+        if (baseItem == null) {
+            baseItem = toDbItem(itemUuid, rs.getString("itemType"), rs.getString("itemName"),
+                    rs.getString("itemField1"), rs.getString("itemField2"), rs.getString("itemField3"));
+            if (baseItem == null) {
+                return;
+            }
+            registry.addItem(baseItem);
+            items.add(baseItem);
+        }
+        addLine(invoice, baseItem, new String[] { invoice.getInvoiceUuid().toString(), itemUuid,
+                rs.getString("lineField1"), rs.getString("lineField2"), rs.getString("lineField3") });
+    }
+
+    /**
+     * Returns the already-loaded Person whose columns start with the given
+     * prefix in a joined row, creating it on first sight.
+     */
+    private Person joinedPerson(ResultSet rs, String prefix) throws SQLException {
+        String uuid = rs.getString(prefix + "Uuid");
+        if (uuid == null) {
+            return null;
+        }
+        Person person = registry.getPerson(uuid);
+        if (person == null) {
+            person = toDbPerson(uuid, rs.getString(prefix + "FirstName"), rs.getString(prefix + "LastName"),
+                    rs.getString(prefix + "Phone"), rs.getString(prefix + "Emails"));
+            registry.addPerson(person);
+            persons.add(person);
+        }
+        return person;
+    }
+
     /** @return all loaded Person objects */
     public List<Person> getPersons() {
         return persons;
@@ -70,192 +461,197 @@ public class DataLoader {
         return invoices;
     }
 
+    /** @return the UUID index over everything loaded so far */
+    public EntityRegistry getRegistry() {
+        return registry;
+    }
+
     /**
      * Executes a SELECT on the Person table and constructs Person instances.
      */
-    private List<Person> loadPersons(Connection conn) throws SQLException {
-        List<Person> list = new ArrayList<>();
-        String sql = "SELECT uuid, firstName, lastName, phone, emails FROM Person";
-        try (PreparedStatement ps = conn.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-            while (rs.next()) {
-                String uuid  = rs.getString("uuid");
-                String fn    = rs.getString("firstName");
-                String ln    = rs.getString("lastName");
-                String phone = rs.getString("phone");
-                String ems   = rs.getString("emails");
-                List<String> emails = (ems == null || ems.isEmpty())
-                        ? Collections.emptyList()
-                        : Arrays.asList(ems.split(";"));
-                list.add(new Person(uuid, fn, ln, phone, emails));
-            }
-        }
+    private List<Person> loadPersons(Connection conn, EntityRegistry registry) throws SQLException {
+        List<Person> list = query(conn, PERSON_SQL, DataLoader::readPerson);
+        list.forEach(registry::addPerson);
         return list;
     }
 
     /**
-     * Executes a SELECT on the Company table, finds each contact via persons list,
-     * and constructs Company instances.
+     * Executes a SELECT on the Company table, resolves each contact through the
+     * registry, and constructs Company instances.
      */
-    private List<Company> loadCompanies(Connection conn, List<Person> persons) throws SQLException {
-        List<Company> companies = new ArrayList<>();
-        String sql =
-            "SELECT c.uuid, c.contactUuid, c.name, " +
-            "       a.street, a.city, a.stateCode AS state, a.zipCode AS zip " +
-            "  FROM Company c " +
-            "  LEFT JOIN Address a ON c.addressId = a.id";
-        try (PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-
-            while (rs.next()) {
-                String uuid        = rs.getString("uuid");
-                String contactUuid = rs.getString("contactUuid");
-                String name        = rs.getString("name");
-                String street      = rs.getString("street");
-                String city        = rs.getString("city");
-                String state       = rs.getString("state");
-                String zip         = rs.getString("zip");
-
-                // find the contact Person by UUID
-                Person contact = persons.stream()
-                        .filter(p -> p.getUuid().toString().equals(contactUuid))
-                        .findFirst()
-                        .orElse(null);
-
-                Address address = new Address(street, city, state, zip);
-                companies.add(new Company(uuid, contact, name, address));
-            }
-        }
-        return companies;
+    private List<Company> loadCompanies(Connection conn, EntityRegistry registry) throws SQLException {
+        return resolveCompanies(query(conn, COMPANY_SQL, DataLoader::readRow), registry, false);
     }
 
     /**
      * Reads all rows from Item and maps them to Java objects.
      * Uses the provided Connection rather than opening its own.
      */
-    private List<Item> loadItems(Connection conn) throws SQLException {
-        List<Item> items = new ArrayList<>();
-        String sql = "SELECT uuid, type, name, field1, field2, field3 FROM Item";
-        try (PreparedStatement ps = conn.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
+    private List<Item> loadItems(Connection conn, EntityRegistry registry) throws SQLException {
+        List<Item> items = query(conn, ITEM_SQL, DataLoader::readItem);
+        items.forEach(registry::addItem);
+        return items;
+    }
 
-            while (rs.next()) {
-                String uuid    = rs.getString("uuid");
-                String type    = rs.getString("type");
-                String name    = rs.getString("name");
-                String f1raw   = rs.getString("field1");
-                String f2raw   = rs.getString("field2");
-                String f3raw   = rs.getString("field3");
-
-                String f1 = (f1raw != null ? f1raw.trim() : "");
-                String f2 = (f2raw != null ? f2raw.trim() : "");
-                String f3 = (f3raw != null ? f3raw.trim() : "");
-
-                switch (type) {
-                    case "E":
-                        double retailPrice = f2.isEmpty() ? 0.0 : Double.parseDouble(f2);
-                        items.add(new Equipment(uuid, name, f1, retailPrice));
-                        break;
-                    case "M":
-                        double unitPrice = f2.isEmpty() ? 0.0 : Double.parseDouble(f2);
-                        int quantity     = f3.isEmpty() ? 0     : Integer.parseInt(f3);
-                        items.add(new Material(uuid, name, f1, unitPrice, quantity));
-                        break;
-                    case "C":
-                        double contractCost = f2.isEmpty() ? 0.0 : Double.parseDouble(f2);
-                        items.add(new Contract(uuid, name, f1, contractCost));
-                        break;
-                    case "L":
-                        if (!f1.isEmpty() && !f2.isEmpty()) {
-                            items.add(new Lease(uuid, new Equipment(uuid, name, "", 0.0), f1, f2));
-                        }
-                        break;
-                    case "R":
-                        double hours = f2.isEmpty() ? 0.0 : Double.parseDouble(f2);
-                        items.add(new Rental(uuid, new Equipment(uuid, name, "", 0.0), hours));
-                        break;
-                    default:
-                        // unknown type, skip
-                        break;
-                }
-            }
+    /**
+     * Executes a SELECT on the Invoice table and constructs Invoice instances,
+     * linking each to its Company and Person through the registry.
+     */
+    private List<Invoice> loadInvoices(Connection conn, EntityRegistry registry) throws SQLException {
+        return resolveInvoices(query(conn, INVOICE_SQL, DataLoader::readRow), registry);
+    }
+
+    /**
+     * Executes a SELECT on InvoiceItems and adds each item to its Invoice,
+     * creating Rental or Lease objects when flagged, otherwise adding base Item.
+     */
+    private void loadInvoiceItems(Connection conn, EntityRegistry registry) throws SQLException {
+        for (String[] parts : query(conn, INVOICE_ITEM_SQL, DataLoader::readRow)) {
+            addInvoiceItem(parts, registry);
         }
-        return items;
     }
 
+    /** Maps the current row of a ResultSet to an object. */
+    @FunctionalInterface
+    private interface RowReader<T> {
+        T read(ResultSet rs) throws SQLException;
+    }
 
     /**
-     * Executes a SELECT on the Invoice table and constructs Invoice instances,
-     * linking each to its Company and Person from the preloaded lists.
+     * Runs a SELECT on the given connection and maps every row; rows the
+     * reader maps to null are dropped.
      */
-    private List<Invoice> loadInvoices(Connection conn,
-                                       List<Company> companies,
-                                       List<Person> persons) throws SQLException {
-        List<Invoice> list = new ArrayList<>();
-        String sql = "SELECT uuid, customerUuid, salesPersonUuid, date FROM Invoice";
+    private static <T> List<T> query(Connection conn, String sql, RowReader<T> reader) throws SQLException {
+        List<T> list = new ArrayList<>();
         try (PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
             while (rs.next()) {
-                String invUuid = rs.getString("uuid");
-                String custUuid = rs.getString("customerUuid");
-                String spUuid   = rs.getString("salesPersonUuid");
-                LocalDate date  = LocalDate.parse(rs.getString("date"));
-                Company cust = companies.stream()
-                        .filter(c -> c.getUuid().toString().equals(custUuid))
-                        .findFirst().orElse(null);
-                Person sp = persons.stream()
-                        .filter(p -> p.getUuid().toString().equals(spUuid))
-                        .findFirst().orElse(null);
-                list.add(new Invoice(invUuid, date, cust, sp, new ArrayList<>()));
+                T row = reader.read(rs);
+                if (row != null) {
+                    list.add(row);
+                }
             }
         }
         return list;
     }
 
     /**
-     * Executes a SELECT on InvoiceItems and adds each item to its Invoice,
-     * creating Rental or Lease objects when flagged, otherwise adding base Item.
+     * Runs a SELECT on a connection borrowed just for this query.
      */
-    private void loadInvoiceItems(Connection conn,
-                                  List<Invoice> invoices,
-                                  List<Item> items) throws SQLException {
-        String sql = "SELECT invoiceUuid, itemUuid, field1, field2, field3 FROM InvoiceItems";
-        try (PreparedStatement ps = conn.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-            while (rs.next()) {
-                String invUuid = rs.getString("invoiceUuid");
-                String itmUuid = rs.getString("itemUuid");
-                String f1      = rs.getString("field1");
-                String f2      = rs.getString("field2");
-                String f3      = rs.getString("field3");
-                Invoice inv = invoices.stream()
-                        .filter(i -> i.getInvoiceUuid().toString().equals(invUuid))
-                        .findFirst().orElse(null);
-                Item base = items.stream()
-                        .filter(i -> i.getUuid().equals(itmUuid))
-                        .findFirst().orElse(null);
-                if (inv != null && base != null) {
-                    if (base instanceof Contract) {
-                        ((Contract) base).setCost(Double.parseDouble(f1));
-                        inv.addItem(base);
-                    } else if (base instanceof Material) {
-                        ((Material) base).setQuantity(Integer.parseInt(f1));
-                        inv.addItem(base);
-                    } else if (base instanceof Equipment) {
-                        if ("R".equals(f1)) {
-                            inv.addItem(new Rental(base.getUuid(), (Equipment) base, Double.parseDouble(f2)));
-                        } else if ("L".equals(f1)) {
-                            inv.addItem(new Lease(base.getUuid(), (Equipment) base, f2, f3));
-                        } else {
-                            inv.addItem(base);
-                        }
-                    } else {
-                        inv.addItem(base);
-                    }
-                }
+    private static <T> List<T> query(String sql, RowReader<T> reader) throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            return query(conn, sql, reader);
+        }
+    }
+
+    private static <T> T await(Future<T> task) throws SQLException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while loading data", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
             }
+            throw new SQLException("Error loading data", e.getCause());
         }
     }
+
+    /** @return every column of the current row as a String */
+    private static String[] readRow(ResultSet rs) throws SQLException {
+        String[] parts = new String[rs.getMetaData().getColumnCount()];
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = rs.getString(i + 1);
+        }
+        return parts;
+    }
+
+    private static Person readPerson(ResultSet rs) throws SQLException {
+        return toDbPerson(rs.getString("uuid"), rs.getString("firstName"), rs.getString("lastName"),
+                rs.getString("phone"), rs.getString("emails"));
+    }
+
+    /**
+     * Builds a Person from database columns, where emails are ';'-separated.
+     */
+    private static Person toDbPerson(String uuid, String fn, String ln, String phone, String ems) {
+        List<String> emails = (ems == null || ems.isEmpty())
+                ? Collections.emptyList()
+                : Arrays.asList(ems.split(";"));
+        return new Person(uuid, fn, ln, phone, emails);
+    }
+
+    private static Item readItem(ResultSet rs) throws SQLException {
+        return toDbItem(rs.getString("uuid"), rs.getString("type"), rs.getString("name"),
+                rs.getString("field1"), rs.getString("field2"), rs.getString("field3"));
+    }
+
+    /**
+     * Builds an Item from the columns of an Item row.
+     *
+     * @return the item, or null for an unknown type
+     */
+    private static Item toDbItem(String uuid, String type, String name,
+                                 String f1raw, String f2raw, String f3raw) {
+
+        String f1 = (f1raw != null ? f1raw.trim() : "");
+        String f2 = (f2raw != null ? f2raw.trim() : "");
+        String f3 = (f3raw != null ? f3raw.trim() : "");
+
+        switch (type) {
+            case "E":
+                double retailPrice = f2.isEmpty() ? 0.0 : Double.parseDouble(f2);
+                return new Equipment(uuid, name, f1, retailPrice);
+            case "M":
+                double unitPrice = f2.isEmpty() ? 0.0 : Double.parseDouble(f2);
+                int quantity     = f3.isEmpty() ? 0     : Integer.parseInt(f3);
+                return new Material(uuid, name, f1, unitPrice, quantity);
+            case "C":
+                double contractCost = f2.isEmpty() ? 0.0 : Double.parseDouble(f2);
+                return new Contract(uuid, name, f1, contractCost);
+            case "L":
+                if (!f1.isEmpty() && !f2.isEmpty()) {
+                    return new Lease(uuid, new Equipment(uuid, name, "", 0.0), f1, f2);
+                }
+                return null;
+            case "R":
+                double hours = f2.isEmpty() ? 0.0 : Double.parseDouble(f2);
+                return new Rental(uuid, new Equipment(uuid, name, "", 0.0), hours);
+            default:
+                // unknown type, skip
+                return null;
+        }
+    }
+
+    /**
+     * Builds and registers a Company for each row of (uuid, contactUuid, name,
+     * street, city, state, zip).
+     */
+    private static List<Company> resolveCompanies(List<String[]> rows, EntityRegistry registry,
+                                                  boolean contactRequired) {
+        List<Company> companies = new ArrayList<>(rows.size());
+        for (String[] parts : rows) {
+            Company company = toCompany(parts, registry, contactRequired);
+            registry.addCompany(company);
+            companies.add(company);
+        }
+        return companies;
+    }
+
+    /**
+     * Builds and registers an Invoice for each row of (uuid, customerUuid,
+     * salesPersonUuid, date).
+     */
+    private static List<Invoice> resolveInvoices(List<String[]> rows, EntityRegistry registry) {
+        List<Invoice> invoices = new ArrayList<>(rows.size());
+        for (String[] parts : rows) {
+            Invoice invoice = toInvoice(parts, registry);
+            registry.addInvoice(invoice);
+            invoices.add(invoice);
+        }
+        return invoices;
+    }
     
     /**
      * Flat‐file loader (legacy Phase I–IV).
@@ -264,149 +660,485 @@ public class DataLoader {
      * @throws IOException if any file read fails
      */
     public void loadFromFiles(String dataDir) throws IOException {
-        persons   = parsePersons(dataDir + "/Persons.csv");
-        companies = parseCompanies(dataDir + "/Companies.csv", persons);
-        items     = parseItems(dataDir + "/Items.csv");
-        invoices  = parseInvoices(dataDir + "/Invoices.csv", companies, persons);
-        parseInvoiceItems(dataDir + "/InvoiceItems.csv", invoices, items);
+        registry.clear();
+        persons   = parsePersons(dataDir + "/Persons.csv", registry);
+        companies = parseCompanies(dataDir + "/Companies.csv", registry);
+        items     = parseItems(dataDir + "/Items.csv", registry);
+        invoices  = parseInvoices(dataDir + "/Invoices.csv", registry);
+        parseInvoiceItems(dataDir + "/InvoiceItems.csv", registry);
     }
     
-    public static List<Person> parsePersons(String filePath) throws IOException {
+    public static List<Person> parsePersons(String filePath, EntityRegistry registry) throws IOException {
         List<Person> persons = new ArrayList<>();
-        List<String> lines = Files.readAllLines(Paths.get(filePath));
-        if (!lines.isEmpty()) lines.remove(0);
-        for (String line : lines) {
-            String[] parts = line.split(",");
-            String uuid = parts[0];
-            String firstName = parts[1];
-            String lastName = parts[2];
-            String phone = parts[3];
-            List<String> emails = (parts.length > 4 && !parts[4].isEmpty())
-                    ? Arrays.asList(parts[4].split(";"))
-                    : new ArrayList<>();
-            persons.add(new Person(uuid, firstName, lastName, phone, emails));
+        try (CsvReader csv = CsvReader.open(filePath)) {
+            csv.readRow(); // header
+            String[] parts;
+            while ((parts = csv.readRow()) != null) {
+                Person person = toPerson(parts);
+                registry.addPerson(person);
+                persons.add(person);
+            }
         }
         return persons;
     }
 
-    public static List<Company> parseCompanies(String filePath, List<Person> persons) throws IOException {
+    public static List<Company> parseCompanies(String filePath, EntityRegistry registry) throws IOException {
         List<Company> companies = new ArrayList<>();
-        List<String> lines = Files.readAllLines(Paths.get(filePath));
-        if (!lines.isEmpty()) lines.remove(0);
-        for (String line : lines) {
-            String[] parts = line.split(",");
-            String uuid = parts[0];
-            String contactUuid = parts[1];
-            String name = parts[2];
-            Address address = new Address(parts[3], parts[4], parts[5], parts[6]);
-            Person contact = persons.stream()
-                    .filter(p -> p.getUuid().toString().equals(contactUuid))
-                    .findFirst()
-                    .orElseThrow(() -> new IllegalArgumentException("Person not found for contactUuid: " + contactUuid));
-            companies.add(new Company(uuid, contact, name, address));
+        try (CsvReader csv = CsvReader.open(filePath)) {
+            csv.readRow(); // header
+            String[] parts;
+            while ((parts = csv.readRow()) != null) {
+                Company company = toCompany(parts, registry, true);
+                registry.addCompany(company);
+                companies.add(company);
+            }
         }
         return companies;
     }
 
-    public static List<Item> parseItems(String filePath) throws IOException {
+    public static List<Item> parseItems(String filePath, EntityRegistry registry) throws IOException {
         List<Item> items = new ArrayList<>();
-        List<String> lines = Files.readAllLines(Paths.get(filePath));
-        if (!lines.isEmpty()) lines.remove(0);
-        for (String line : lines) {
-            String[] parts = line.split(",");
-            String uuid = parts[0];
-            String type = parts[1];
-            String name = parts[2];
-            switch (type) {
-                case "E":
-                    items.add(new Equipment(uuid, name, parts[3], Double.parseDouble(parts[4])));
-                    break;
-                case "M":
-                    items.add(new Material(uuid, name, parts[3], Double.parseDouble(parts[4]), 0));
-                    break;
-                case "C":
-                    items.add(new Contract(uuid, name, parts[3], 0));
-                    break;
-                default:
-                    // Leases and Rentals handled in parseInvoiceItems()
-                    break;
+        try (CsvReader csv = CsvReader.open(filePath)) {
+            csv.readRow(); // header
+            String[] parts;
+            while ((parts = csv.readRow()) != null) {
+                Item item = toItem(parts);
+                if (item != null) {
+                    items.add(item);
+                }
             }
         }
+        items.forEach(registry::addItem);
         return items;
     }
 
-    public static List<Invoice> parseInvoices(String filePath, List<Company> companies, List<Person> persons) throws IOException {
+    public static List<Invoice> parseInvoices(String filePath, EntityRegistry registry) throws IOException {
         List<Invoice> invoices = new ArrayList<>();
-        List<String> lines = Files.readAllLines(Paths.get(filePath));
-        if (!lines.isEmpty()) lines.remove(0);
-        for (String line : lines) {
-            String[] parts = line.split(",");
-            String invoiceUuid = parts[0];
-            String customerUuid = parts[1];
-            String salesPersonUuid = parts[2];
-            LocalDate date = LocalDate.parse(parts[3]);
-
-            Company customer = companies.stream()
-                    .filter(c -> c.getUuid().toString().equals(customerUuid))
-                    .findFirst()
-                    .orElse(null);
-
-            Person salesPerson = persons.stream()
-                    .filter(p -> p.getUuid().toString().equals(salesPersonUuid))
-                    .findFirst()
-                    .orElse(null);
-
-            invoices.add(new Invoice(invoiceUuid, date, customer, salesPerson, new ArrayList<>()));
+        try (CsvReader csv = CsvReader.open(filePath)) {
+            csv.readRow(); // header
+            String[] parts;
+            while ((parts = csv.readRow()) != null) {
+                Invoice invoice = toInvoice(parts, registry);
+                registry.addInvoice(invoice);
+                invoices.add(invoice);
+            }
         }
         return invoices;
     }
 
-    public static void parseInvoiceItems(String filePath, List<Invoice> invoices, List<Item> items) throws IOException {
-        List<String> lines = Files.readAllLines(Paths.get(filePath));
-        if (!lines.isEmpty()) lines.remove(0);
-        for (String line : lines) {
-            String[] parts = line.split(",");
-            String invoiceUuid = parts[0];
-            String itemUuid = parts[1];
-
-            Invoice invoice = invoices.stream()
-                    .filter(inv -> inv.getInvoiceUuid().toString().equals(invoiceUuid))
-                    .findFirst()
-                    .orElse(null);
-
-            Item baseItem = items.stream()
-                    .filter(i -> i.getUuid().equals(itemUuid))
-                    .findFirst()
-                    .orElse(null);
-
-            if (invoice != null && baseItem != null) {
-                if (baseItem instanceof Contract) {
-                    double cost = Double.parseDouble(parts[2]);
-                    ((Contract) baseItem).setCost(cost);
-                    invoice.addItem(baseItem);
-
-                } else if (baseItem instanceof Material) {
-                    int quantity = Integer.parseInt(parts[2]);
-                    ((Material) baseItem).setQuantity(quantity);
-                    invoice.addItem(baseItem);
-
-                } else if (baseItem instanceof Equipment) {
-                    // Rental: flag "R", hours in parts[3]
-                    if ("R".equals(parts[2])) {
-                        double hours = Double.parseDouble(parts[3]);
-                        invoice.addItem(new Rental(itemUuid, (Equipment) baseItem, hours));
-                    }
-                    // Lease: flag "L", start=parts[3], end=parts[4]
-                    else if ("L".equals(parts[2])) {
-                        invoice.addItem(new Lease(itemUuid, (Equipment) baseItem, parts[3], parts[4]));
-                    } else {
-                        invoice.addItem(baseItem);
+    public static void parseInvoiceItems(String filePath, EntityRegistry registry) throws IOException {
+        try (CsvReader csv = CsvReader.open(filePath)) {
+            csv.readRow(); // header
+            String[] parts;
+            while ((parts = csv.readRow()) != null) {
+                addInvoiceItem(parts, registry);
+            }
+        }
+    }
+
+    /**
+     * Parallel flat-file loader using the common fork-join pool.
+     *
+     * @param dataDir path to directory containing Persons.csv, Companies.csv, etc.
+     * @throws IOException if any file read fails
+     */
+    public void loadFromFilesParallel(String dataDir) throws IOException {
+        loadFromFilesParallel(dataDir, new MappedCsvLoader());
+    }
+
+    /**
+     * Parallel flat-file loader for large data directories. Every CSV is
+     * memory-mapped and parsed in line-aligned chunks on the loader's
+     * fork-join pool, all five files at once. Persons and Items are built
+     * inside the parse tasks; the rows that reference other entities are
+     * resolved afterwards, in file order, once the registry is complete.
+     *
+     * @param dataDir path to directory containing Persons.csv, Companies.csv, etc.
+     * @param loader  the chunked loader (pool and chunk size) to parse with
+     * @throws IOException if any file read fails
+     */
+    public void loadFromFilesParallel(String dataDir, MappedCsvLoader loader) throws IOException {
+        registry.clear();
+        ForkJoinTask<List<Person>> personRows    = loader.submit(dataDir + "/Persons.csv", DataLoader::toPerson);
+        ForkJoinTask<List<Item>> itemRows        = loader.submit(dataDir + "/Items.csv", DataLoader::toItem);
+        ForkJoinTask<List<String[]>> companyRows = loader.submit(dataDir + "/Companies.csv", row -> row);
+        ForkJoinTask<List<String[]>> invoiceRows = loader.submit(dataDir + "/Invoices.csv", row -> row);
+        ForkJoinTask<List<String[]>> lineRows    = loader.submit(dataDir + "/InvoiceItems.csv", row -> row);
+
+        persons = MappedCsvLoader.await(personRows);
+        persons.forEach(registry::addPerson);
+        items = MappedCsvLoader.await(itemRows);
+        items.forEach(registry::addItem);
+
+        companies = resolveCompanies(MappedCsvLoader.await(companyRows), registry, true);
+        invoices = resolveInvoices(MappedCsvLoader.await(invoiceRows), registry);
+        for (String[] parts : MappedCsvLoader.await(lineRows)) {
+            addInvoiceItem(parts, registry);
+        }
+    }
+
+    /**
+     * Loads the JSON files written by {@link DataConverter}: persons.json,
+     * companies.json, items.json and every invoices-NNNNN.json chunk, in
+     * name order. File names are matched ignoring case, so the shipped
+     * Persons.json, Companies.json and Items.json load too. Each file is
+     * streamed a record at a time and references are resolved through the
+     * registry exactly as for the CSV files.
+     *
+     * @param dataDir directory holding the converted files
+     * @throws IOException if any file read fails
+     */
+    public void loadFromJson(String dataDir) throws IOException {
+        loadFromRecords(dataDir, ".json");
+    }
+
+    /**
+     * Loads the XML files written by {@link DataConverter}; see
+     * {@link #loadFromJson(String)}.
+     *
+     * @param dataDir directory holding the converted files
+     * @throws IOException if any file read fails
+     */
+    public void loadFromXml(String dataDir) throws IOException {
+        loadFromRecords(dataDir, ".xml");
+    }
+
+    private void loadFromRecords(String dataDir, String suffix) throws IOException {
+        Map<String, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> dir = Files.newDirectoryStream(Paths.get(dataDir))) {
+            for (Path file : dir) {
+                files.put(file.getFileName().toString().toLowerCase(), file);
+            }
+        }
+        registry.clear();
+        persons   = readPersons(recordFile(files, dataDir, "persons" + suffix), registry);
+        companies = readCompanies(recordFile(files, dataDir, "companies" + suffix), registry);
+        items     = readItems(recordFile(files, dataDir, "items" + suffix), registry);
+        invoices  = new ArrayList<>();
+        for (Map.Entry<String, Path> file : files.entrySet()) {
+            if (file.getKey().startsWith("invoices-") && file.getKey().endsWith(suffix)) {
+                invoices.addAll(readInvoices(file.getValue().toString(), registry));
+            }
+        }
+        log.info("Loaded {} persons, {} companies, {} items, {} invoices from {} {} files",
+                persons.size(), companies.size(), items.size(), invoices.size(), dataDir, suffix);
+    }
+
+    /**
+     * @param files a directory's files by lower-case name
+     * @return the path of the named file, whatever its case
+     * @throws NoSuchFileException if there is no such file
+     */
+    private static String recordFile(Map<String, Path> files, String dataDir, String name)
+            throws NoSuchFileException {
+        Path file = files.get(name);
+        if (file == null) {
+            throw new NoSuchFileException(dataDir + "/" + name);
+        }
+        return file.toString();
+    }
+
+    /**
+     * Writes everything loaded so far to a binary snapshot that
+     * {@link #loadFromSnapshot} maps back in; see {@link EntitySnapshot}.
+     *
+     * @param filePath file to write; replaced atomically if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public void saveSnapshot(String filePath) throws IOException {
+        EntitySnapshot.save(filePath, persons, companies, items, invoices);
+    }
+
+    /**
+     * Loads persons, companies, items and invoices from a snapshot written
+     * by {@link #saveSnapshot}, without touching the CSV files or database.
+     *
+     * @param filePath the snapshot file
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public void loadFromSnapshot(String filePath) throws IOException {
+        registry.clear();
+        EntitySnapshot snapshot = EntitySnapshot.load(filePath, registry);
+        persons   = snapshot.getPersons();
+        companies = snapshot.getCompanies();
+        items     = snapshot.getItems();
+        invoices  = snapshot.getInvoices();
+    }
+
+    /**
+     * Streams persons from a .json or .xml file and registers them.
+     */
+    public static List<Person> readPersons(String filePath, EntityRegistry registry) throws IOException {
+        List<Person> persons = new ArrayList<>();
+        RecordReader.read(filePath, record -> {
+            Person person = toPerson(record);
+            registry.addPerson(person);
+            persons.add(person);
+        });
+        return persons;
+    }
+
+    /**
+     * Streams companies from a .json or .xml file and registers them. A
+     * contact is resolved by its UUID; one that was not loaded is built from
+     * the embedded copy and registered.
+     */
+    public static List<Company> readCompanies(String filePath, EntityRegistry registry) throws IOException {
+        List<Company> companies = new ArrayList<>();
+        RecordReader.read(filePath, record -> {
+            Map<String, Object> embedded = field(record, "contact");
+            Person contact = null;
+            if (embedded != null) {
+                contact = registry.getPerson(text(embedded, "uuid"));
+                if (contact == null) {
+                    contact = toPerson(embedded);
+                    registry.addPerson(contact);
+                }
+            }
+            Map<String, Object> address = field(record, "address");
+            Company company = new Company(text(record, "companyUuid"), contact, text(record, "name"),
+                    address == null ? new Address("", "", "", "")
+                            : new Address(text(address, "street"), text(address, "city"),
+                                          text(address, "state"), text(address, "zip")));
+            registry.addCompany(company);
+            companies.add(company);
+        });
+        return companies;
+    }
+
+    /**
+     * Streams catalog items from a .json or .xml file and registers them.
+     * The serialized items carry no type tag, so the type is told by its
+     * fields: a model number for Equipment, a unit for Material, a company
+     * for a Contract. Records matching none are skipped.
+     */
+    public static List<Item> readItems(String filePath, EntityRegistry registry) throws IOException {
+        List<Item> items = new ArrayList<>();
+        RecordReader.read(filePath, record -> {
+            Item item = toItem(record);
+            if (item != null) {
+                items.add(item);
+            }
+        });
+        items.forEach(registry::addItem);
+        return items;
+    }
+
+    /**
+     * Streams invoices, with their embedded lines, from a .json or .xml file
+     * in the format of {@link DataConverter#writeInvoicesJson}, resolving the
+     * customer, sales person and each line's catalog item through the registry.
+     */
+    public static List<Invoice> readInvoices(String filePath, EntityRegistry registry) throws IOException {
+        List<Invoice> invoices = new ArrayList<>();
+        RecordReader.read(filePath, record -> {
+            String invoiceUuid = text(record, "uuid");
+            Invoice invoice = toInvoice(new String[] {invoiceUuid, text(record, "customerUuid"),
+                    text(record, "salesPersonUuid"), text(record, "date")}, registry);
+            registry.addInvoice(invoice);
+            invoices.add(invoice);
+            Object lines = record.get("items");
+            if (lines instanceof List) {
+                for (Object line : (List<?>) lines) {
+                    if (line instanceof Map) {
+                        addInvoiceItem(toLineRow(invoiceUuid, asRecord(line)), registry);
                     }
+                }
+            }
+        });
+        return invoices;
+    }
 
-                } else {
-                    invoice.addItem(baseItem);
+    /**
+     * Builds a Person from a JSON or XML record.
+     */
+    private static Person toPerson(Map<String, Object> record) {
+        List<String> emails = new ArrayList<>();
+        Object values = record.get("emails");
+        if (values instanceof List) {
+            for (Object email : (List<?>) values) {
+                if (email != null) {
+                    emails.add(email.toString());
                 }
             }
         }
+        return new Person(text(record, "uuid"), text(record, "firstName"), text(record, "lastName"),
+                text(record, "phone"), emails);
+    }
+
+    /**
+     * Builds a catalog Item from a JSON or XML record.
+     *
+     * @return the item, or null if its type cannot be told
+     */
+    private static Item toItem(Map<String, Object> record) {
+        String uuid = text(record, "uuid");
+        String name = text(record, "name");
+        if (record.containsKey("modelNumber")) {
+            return new Equipment(uuid, name, text(record, "modelNumber"), number(record, "retailPrice"));
+        } else if (record.containsKey("unit")) {
+            return new Material(uuid, name, text(record, "unit"), number(record, "costPerUnit"),
+                    (int) number(record, "quantity"));
+        } else if (record.containsKey("companyUuid")) {
+            return new Contract(uuid, name, text(record, "companyUuid"), number(record, "cost"));
+        }
+        return null;
+    }
+
+    /**
+     * Turns an embedded invoice line into its InvoiceItems.csv row.
+     */
+    private static String[] toLineRow(String invoiceUuid, Map<String, Object> line) {
+        String itemUuid = text(line, "itemUuid");
+        switch (text(line, "type")) {
+            case "Rental":
+                return new String[] {invoiceUuid, itemUuid, "R", text(line, "hours")};
+            case "Lease":
+                return new String[] {invoiceUuid, itemUuid, "L", text(line, "startDate"), text(line, "endDate")};
+            case "Material":
+                return new String[] {invoiceUuid, itemUuid, text(line, "quantity")};
+            case "Contract":
+                return new String[] {invoiceUuid, itemUuid, text(line, "cost")};
+            default:
+                return new String[] {invoiceUuid, itemUuid, "P"};
+        }
+    }
+
+    /** @return a record's text field, or "" if absent */
+    private static String text(Map<String, Object> record, String name) {
+        Object value = record.get(name);
+        return value instanceof String ? (String) value : "";
+    }
+
+    /** @return a record's numeric field, or 0 if absent or blank */
+    private static double number(Map<String, Object> record, String name) {
+        String value = text(record, name).trim();
+        return value.isEmpty() ? 0.0 : Double.parseDouble(value);
+    }
+
+    /** @return a record's nested record, or null if absent */
+    private static Map<String, Object> field(Map<String, Object> record, String name) {
+        Object value = record.get(name);
+        return value instanceof Map ? asRecord(value) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asRecord(Object value) {
+        return (Map<String, Object>) value;
+    }
+
+    /**
+     * Builds a Person from a Persons.csv row.
+     */
+    private static Person toPerson(String[] parts) {
+        String uuid = parts[0];
+        String firstName = parts[1];
+        String lastName = parts[2];
+        String phone = parts[3];
+        List<String> emails = (parts.length > 4 && !parts[4].isEmpty())
+                ? Arrays.asList(parts[4].split(";"))
+                : new ArrayList<>();
+        return new Person(uuid, firstName, lastName, phone, emails);
+    }
+
+    /**
+     * Builds a Company from a Companies.csv or Company row, resolving its contact.
+     *
+     * @param contactRequired whether a missing contact is an error (flat files)
+     *                        or left null (database rows)
+     */
+    private static Company toCompany(String[] parts, EntityRegistry registry, boolean contactRequired) {
+        String uuid = parts[0];
+        String contactUuid = parts[1];
+        String name = parts[2];
+        Address address = new Address(parts[3], parts[4], parts[5], parts[6]);
+        Person contact = registry.getPerson(contactUuid);
+        if (contact == null && contactRequired) {
+            throw new IllegalArgumentException("Person not found for contactUuid: " + contactUuid);
+        }
+        return new Company(uuid, contact, name, address);
+    }
+
+    /**
+     * Builds an Item from an Items.csv row.
+     *
+     * @return the item, or null for leases and rentals, which are only
+     *         created per invoice line
+     */
+    private static Item toItem(String[] parts) {
+        String uuid = parts[0];
+        String type = parts[1];
+        String name = parts[2];
+        switch (type) {
+            case "E":
+                return new Equipment(uuid, name, parts[3], Double.parseDouble(parts[4]));
+            case "M":
+                return new Material(uuid, name, parts[3], Double.parseDouble(parts[4]), 0);
+            case "C":
+                return new Contract(uuid, name, parts[3], 0);
+            default:
+                // Leases and Rentals handled in addInvoiceItem()
+                return null;
+        }
+    }
+
+    /**
+     * Builds an Invoice from an Invoices.csv or Invoice row, resolving customer and salesperson.
+     */
+    private static Invoice toInvoice(String[] parts, EntityRegistry registry) {
+        String invoiceUuid = parts[0];
+        String customerUuid = parts[1];
+        String salesPersonUuid = parts[2];
+        LocalDate date = LocalDate.parse(parts[3]);
+
+        Company customer = registry.getCompany(customerUuid);
+        Person salesPerson = registry.getPerson(salesPersonUuid);
+
+        return new Invoice(invoiceUuid, date, customer, salesPerson, new ArrayList<>());
+    }
+
+    /**
+     * Adds the item described by an InvoiceItems.csv or InvoiceItems row to its invoice.
+     * Every line gets its own Item carrying that line's quantity, cost, hours
+     * or dates; the shared catalog item is never modified.
+     */
+    private static void addInvoiceItem(String[] parts, EntityRegistry registry) {
+        Invoice invoice = registry.getInvoice(parts[0]);
+        Item baseItem = registry.getItem(parts[1]);
+
+        if (invoice != null && baseItem != null) {
+            addLine(invoice, baseItem, parts);
+        }
+    }
+
+    /**
+     * Adds one line for a catalog item, described by an InvoiceItems row, to an invoice.
+     */
+    private static void addLine(Invoice invoice, Item baseItem, String[] parts) {
+        String itemUuid = parts[1];
+        if (baseItem instanceof Contract) {
+            double cost = Double.parseDouble(parts[2]);
+            invoice.addItem(((Contract) baseItem).withCost(cost));
+
+        } else if (baseItem instanceof Material) {
+            int quantity = Integer.parseInt(parts[2]);
+            invoice.addItem(((Material) baseItem).withQuantity(quantity));
+
+        } else if (baseItem instanceof Equipment) {
+            // Rental: flag "R", hours in parts[3]
+            if ("R".equals(parts[2])) {
+                double hours = Double.parseDouble(parts[3]);
+                invoice.addItem(new Rental(itemUuid, (Equipment) baseItem, hours));
+            }
+            // Lease: flag "L", start=parts[3], end=parts[4]
+            else if ("L".equals(parts[2])) {
+                invoice.addItem(new Lease(itemUuid, (Equipment) baseItem, parts[3], parts[4]));
+            } else {
+                invoice.addItem(baseItem);
+            }
+
+        } else {
+            invoice.addItem(baseItem);
+        }
     }
 }
@@ -0,0 +1,46 @@
+package com.vgb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class DataLoaderTests {
+
+    private static List<String> names(List<?> entities) {
+        List<String> names = new ArrayList<>();
+        for (Object entity : entities) {
+            names.add(entity instanceof Item ? ((Item) entity).getUuid() + " " + ((Item) entity).getName()
+                                             : entity.toString());
+        }
+        return names;
+    }
+
+    /**
+     * Tests that the shipped data/Persons, Companies and Items .json and
+     * .xml files load, despite their capitalized names, to the same
+     * entities as the CSV files.
+     */
+    @Test
+    public void testLoadsShippedJsonAndXml() throws IOException {
+        DataLoader csv = new DataLoader();
+        csv.loadFromFiles("data");
+        for (boolean xml : new boolean[] {false, true}) {
+            DataLoader loader = new DataLoader();
+            if (xml) {
+                loader.loadFromXml("data");
+            } else {
+                loader.loadFromJson("data");
+            }
+            assertEquals(6, loader.getPersons().size());
+            assertEquals(3, loader.getCompanies().size());
+            assertEquals(6, loader.getItems().size());
+            assertEquals(names(csv.getPersons()), names(loader.getPersons()));
+            assertEquals(names(csv.getCompanies()), names(loader.getCompanies()));
+            assertEquals(names(csv.getItems()), names(loader.getItems()));
+            assertEquals(0, loader.getInvoices().size());
+        }
+    }
+}
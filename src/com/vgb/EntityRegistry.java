@@ -0,0 +1,96 @@
+// EntityRegistry.java
+package com.vgb;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * UUID-keyed index of every loaded Person, Company, Item and Invoice.
+ * Shared by the JDBC and flat-file loaders so that resolving a foreign key
+ * is a single hash lookup rather than a scan over the full list.
+ *
+ * The first entity registered under a UUID wins, matching the old
+ * findFirst() behaviour of the list scans.
+ */
+public class EntityRegistry {
+    private final Map<UUID, Person> persons = new HashMap<>();
+    private final Map<UUID, Company> companies = new HashMap<>();
+    private final Map<UUID, Item> items = new HashMap<>();
+    private final Map<UUID, Invoice> invoices = new HashMap<>();
+
+    public void addPerson(Person person) {
+        persons.putIfAbsent(person.getUuid(), person);
+    }
+
+    public void addCompany(Company company) {
+        companies.putIfAbsent(company.getUuid(), company);
+    }
+
+    public void addItem(Item item) {
+        items.putIfAbsent(UUID.fromString(item.getUuid()), item);
+    }
+
+    public void addInvoice(Invoice invoice) {
+        invoices.putIfAbsent(invoice.getInvoiceUuid(), invoice);
+    }
+
+    /** @return the Person with the given UUID, or null if none was loaded */
+    public Person getPerson(String uuid) {
+        return persons.get(toUuid(uuid));
+    }
+
+    /** @return the Company with the given UUID, or null if none was loaded */
+    public Company getCompany(String uuid) {
+        return companies.get(toUuid(uuid));
+    }
+
+    /** @return the Item with the given UUID, or null if none was loaded */
+    public Item getItem(String uuid) {
+        return items.get(toUuid(uuid));
+    }
+
+    /** @return the Invoice with the given UUID, or null if none was loaded */
+    public Invoice getInvoice(String uuid) {
+        return invoices.get(toUuid(uuid));
+    }
+
+    public Person getPerson(UUID uuid) {
+        return persons.get(uuid);
+    }
+
+    public Company getCompany(UUID uuid) {
+        return companies.get(uuid);
+    }
+
+    public Item getItem(UUID uuid) {
+        return items.get(uuid);
+    }
+
+    public Invoice getInvoice(UUID uuid) {
+        return invoices.get(uuid);
+    }
+
+    /** Removes every registered entity. */
+    public void clear() {
+        persons.clear();
+        companies.clear();
+        items.clear();
+        invoices.clear();
+    }
+
+    /**
+     * Parses a raw key from a CSV field or result-set column.
+     * Null, blank or malformed keys resolve to nothing rather than throwing.
+     */
+    private static UUID toUuid(String uuid) {
+        if (uuid == null || uuid.isBlank()) {
+            return null;
+        }
+        try {
+            return UUID.fromString(uuid.trim());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
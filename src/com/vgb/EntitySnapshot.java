@@ -0,0 +1,486 @@
+// EntitySnapshot.java
+package com.vgb;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Binary snapshot of a loaded entity graph (persons, companies, catalog
+ * items and invoices with their lines), so report tools can start from one
+ * memory-mapped file instead of reparsing CSV or re-querying MySQL. Written
+ * and read through {@link DataLoader#saveSnapshot} and
+ * {@link DataLoader#loadFromSnapshot}.
+ *
+ * The file is big-endian: the int {@link #MAGIC}, a version byte and the
+ * offset of the string dictionary, then four tables in order: persons,
+ * companies, items, invoices. Each table starts with its total count and
+ * how many of those were in the loader's own list; the rest are entities
+ * only reachable through references, such as a contact that was never in
+ * the persons list. Entities refer to one another by table index and to
+ * strings by dictionary index, -1 meaning none, so repeated names, cities
+ * and model numbers are stored once. UUIDs are two longs and dates epoch
+ * days. Invoice lines store their catalog item's index, their type and the
+ * line's own hours, dates, quantity or cost. The dictionary comes last, as
+ * a count followed by length-prefixed UTF-8 strings.
+ */
+public class EntitySnapshot {
+    private static final Logger log = LogManager.getLogger(EntitySnapshot.class);
+
+    /** "VGBE", the first four bytes of a snapshot file. */
+    public static final int MAGIC = 0x56474245;
+    public static final byte VERSION = 1;
+
+    /** Header: magic, version and dictionary offset. */
+    private static final int HEADER_SIZE = 4 + 1 + 8;
+
+    private final List<Person> persons;
+    private final List<Company> companies;
+    private final List<Item> items;
+    private final List<Invoice> invoices;
+
+    private EntitySnapshot(List<Person> persons, List<Company> companies, List<Item> items, List<Invoice> invoices) {
+        this.persons = persons;
+        this.companies = companies;
+        this.items = items;
+        this.invoices = invoices;
+    }
+
+    /** @return the persons that were in the loader's list when saved */
+    public List<Person> getPersons() {
+        return persons;
+    }
+
+    /** @return the companies that were in the loader's list when saved */
+    public List<Company> getCompanies() {
+        return companies;
+    }
+
+    /** @return the catalog items that were in the loader's list when saved */
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public List<Invoice> getInvoices() {
+        return invoices;
+    }
+
+    /**
+     * Index of one kind of entity: the listed ones first, in order, then
+     * any found only through references.
+     */
+    private static class Table<K, T> {
+        private final Map<K, Integer> index = new HashMap<>();
+        private final List<T> entities = new ArrayList<>();
+        private final int listed;
+
+        Table(List<T> list, Function<T, K> key) {
+            for (T entity : list) {
+                add(key.apply(entity), entity);
+            }
+            listed = entities.size();
+        }
+
+        void add(K key, T entity) {
+            if (entity != null && index.putIfAbsent(key, entities.size()) == null) {
+                entities.add(entity);
+            }
+        }
+
+        int indexOf(K key) {
+            Integer i = key == null ? null : index.get(key);
+            return i == null ? -1 : i;
+        }
+    }
+
+    /**
+     * Writes a snapshot to a temporary file next to the target and moves it
+     * into place. Null lists are written as empty.
+     */
+    public static void save(String filePath, List<Person> persons, List<Company> companies,
+                            List<Item> items, List<Invoice> invoices) throws IOException {
+        Table<UUID, Person> personTable = new Table<>(orEmpty(persons), Person::getUuid);
+        Table<UUID, Company> companyTable = new Table<>(orEmpty(companies), Company::getUuid);
+        Table<String, Item> itemTable = new Table<>(orEmpty(items), Item::getUuid);
+        invoices = orEmpty(invoices);
+        for (Invoice invoice : invoices) {
+            Company customer = invoice.getCustomer();
+            if (customer != null) {
+                companyTable.add(customer.getUuid(), customer);
+            }
+            if (invoice.getSalesPerson() != null) {
+                personTable.add(invoice.getSalesPerson().getUuid(), invoice.getSalesPerson());
+            }
+            for (Item line : invoice.getItems()) {
+                itemTable.add(line.getUuid(), catalogItem(line));
+            }
+        }
+        for (Company company : companyTable.entities) {
+            if (company.getContact() != null) {
+                personTable.add(company.getContact().getUuid(), company.getContact());
+            }
+        }
+
+        Path path = Paths.get(filePath).toAbsolutePath();
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        long dictionarySize = 4;
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(0); // dictionary offset, patched below
+
+            out.writeInt(personTable.entities.size());
+            out.writeInt(personTable.listed);
+            for (Person p : personTable.entities) {
+                writeUuid(out, p.getUuid());
+                writeString(out, dictionary, p.getFirstName());
+                writeString(out, dictionary, p.getLastName());
+                writeString(out, dictionary, p.getPhone());
+                out.writeInt(p.getEmails().size());
+                for (String email : p.getEmails()) {
+                    writeString(out, dictionary, email);
+                }
+            }
+
+            out.writeInt(companyTable.entities.size());
+            out.writeInt(companyTable.listed);
+            for (Company c : companyTable.entities) {
+                writeUuid(out, c.getUuid());
+                out.writeInt(c.getContact() == null ? -1 : personTable.indexOf(c.getContact().getUuid()));
+                writeString(out, dictionary, c.getName());
+                Address a = c.getAddress();
+                out.writeBoolean(a != null);
+                if (a != null) {
+                    writeString(out, dictionary, a.getStreet());
+                    writeString(out, dictionary, a.getCity());
+                    writeString(out, dictionary, a.getState());
+                    writeString(out, dictionary, a.getZip());
+                }
+            }
+
+            out.writeInt(itemTable.entities.size());
+            out.writeInt(itemTable.listed);
+            for (Item item : itemTable.entities) {
+                byte type = ColumnarInvoiceStore.typeOf(item);
+                writeUuid(out, UUID.fromString(item.getUuid()));
+                out.writeByte(type);
+                writeString(out, dictionary, item.getName());
+                switch (type) {
+                    case ColumnarInvoiceStore.EQUIPMENT:
+                        writeString(out, dictionary, ((Equipment) item).getModelNumber());
+                        out.writeDouble(((Equipment) item).getRetailPrice());
+                        break;
+                    case ColumnarInvoiceStore.MATERIAL:
+                        writeString(out, dictionary, ((Material) item).getUnit());
+                        out.writeDouble(((Material) item).getCostPerUnit());
+                        out.writeInt(((Material) item).getQuantity());
+                        break;
+                    case ColumnarInvoiceStore.CONTRACT:
+                        writeUuid(out, ((Contract) item).getCompanyUuid());
+                        out.writeLong(item.getCostCents());
+                        break;
+                    default:
+                        throw new IllegalStateException("Not a catalog item: " + item.getUuid());
+                }
+            }
+
+            out.writeInt(invoices.size());
+            out.writeInt(invoices.size());
+            for (Invoice invoice : invoices) {
+                writeUuid(out, invoice.getInvoiceUuid());
+                out.writeInt(invoice.getCustomer() == null ? -1 : companyTable.indexOf(invoice.getCustomer().getUuid()));
+                out.writeInt(invoice.getSalesPerson() == null
+                        ? -1 : personTable.indexOf(invoice.getSalesPerson().getUuid()));
+                out.writeInt(invoice.getInvoiceDate() == null ? Integer.MIN_VALUE
+                        : (int) invoice.getInvoiceDate().toEpochDay());
+                out.writeInt(invoice.getItems().size());
+                for (Item line : invoice.getItems()) {
+                    byte type = ColumnarInvoiceStore.typeOf(line);
+                    out.writeInt(itemTable.indexOf(line.getUuid()));
+                    out.writeByte(type);
+                    switch (type) {
+                        case ColumnarInvoiceStore.LEASE:
+                            out.writeInt((int) ((Lease) line).getStartDate().toEpochDay());
+                            out.writeInt((int) ((Lease) line).getEndDate().toEpochDay());
+                            break;
+                        case ColumnarInvoiceStore.RENTAL:
+                            out.writeDouble(((Rental) line).getHours());
+                            break;
+                        case ColumnarInvoiceStore.MATERIAL:
+                            out.writeInt(((Material) line).getQuantity());
+                            break;
+                        case ColumnarInvoiceStore.CONTRACT:
+                            out.writeLong(line.getCostCents());
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            }
+
+            out.writeInt(dictionary.size());
+            for (String s : dictionary.keySet()) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+                dictionarySize += 4 + bytes.length;
+            }
+        }
+        // DataOutputStream.size() stops counting at 2GB, so work back from the file length
+        long dictionaryOffset = Files.size(tmp) - dictionarySize;
+        try (RandomAccessFile file = new RandomAccessFile(tmp.toFile(), "rw")) {
+            file.seek(5);
+            file.writeLong(dictionaryOffset);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Saved snapshot of {} persons, {} companies, {} items, {} invoices ({} strings) to {}",
+                personTable.entities.size(), companyTable.entities.size(), itemTable.entities.size(),
+                invoices.size(), dictionary.size(), filePath);
+    }
+
+    /** @return the catalog item an invoice line was made from */
+    private static Item catalogItem(Item line) {
+        if (line instanceof Lease) {
+            return ((Lease) line).getEquipment();
+        }
+        if (line instanceof Rental) {
+            return ((Rental) line).getEquipment();
+        }
+        return line;
+    }
+
+    private static <T> List<T> orEmpty(List<T> list) {
+        return list == null ? new ArrayList<>() : list;
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static void writeString(DataOutputStream out, Map<String, Integer> dictionary, String s)
+            throws IOException {
+        out.writeInt(s == null ? -1 : dictionary.computeIfAbsent(s, k -> dictionary.size()));
+    }
+
+    /**
+     * Memory-maps a snapshot and rebuilds the entity graph, registering
+     * every entity, listed or only referenced, with the registry.
+     *
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public static EntitySnapshot load(String filePath, EntityRegistry registry) throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            MappedInput in = new MappedInput(channel);
+            if (in.size < HEADER_SIZE || in.readInt() != MAGIC || in.readByte() != VERSION) {
+                throw new IOException("Not a version " + VERSION + " entity snapshot: " + filePath);
+            }
+            long dictionaryOffset = in.readLong();
+            in.seek(dictionaryOffset);
+            String[] strings = new String[in.readInt()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = in.readUtf8();
+            }
+            in.seek(HEADER_SIZE);
+
+            Person[] persons = new Person[in.readInt()];
+            int listedPersons = in.readInt();
+            for (int i = 0; i < persons.length; i++) {
+                String uuid = in.readUuid().toString();
+                String firstName = in.readString(strings);
+                String lastName = in.readString(strings);
+                String phone = in.readString(strings);
+                List<String> emails = new ArrayList<>();
+                for (int e = in.readInt(); e > 0; e--) {
+                    emails.add(in.readString(strings));
+                }
+                persons[i] = new Person(uuid, firstName, lastName, phone, emails);
+                registry.addPerson(persons[i]);
+            }
+
+            Company[] companies = new Company[in.readInt()];
+            int listedCompanies = in.readInt();
+            for (int i = 0; i < companies.length; i++) {
+                String uuid = in.readUuid().toString();
+                int contact = in.readInt();
+                String name = in.readString(strings);
+                Address address = in.readByte() != 0
+                        ? new Address(in.readString(strings), in.readString(strings),
+                                      in.readString(strings), in.readString(strings))
+                        : null;
+                companies[i] = new Company(uuid, contact < 0 ? null : persons[contact], name, address);
+                registry.addCompany(companies[i]);
+            }
+
+            Item[] items = new Item[in.readInt()];
+            int listedItems = in.readInt();
+            for (int i = 0; i < items.length; i++) {
+                String uuid = in.readUuid().toString();
+                byte type = in.readByte();
+                String name = in.readString(strings);
+                switch (type) {
+                    case ColumnarInvoiceStore.EQUIPMENT:
+                        items[i] = new Equipment(uuid, name, in.readString(strings), in.readDouble());
+                        break;
+                    case ColumnarInvoiceStore.MATERIAL:
+                        items[i] = new Material(uuid, name, in.readString(strings), in.readDouble(), in.readInt());
+                        break;
+                    case ColumnarInvoiceStore.CONTRACT:
+                        String company = in.readUuid().toString();
+                        items[i] = new Contract(uuid, name, company, Money.toDollars(in.readLong()));
+                        break;
+                    default:
+                        throw new IOException("Bad item type " + type + " in " + filePath);
+                }
+                registry.addItem(items[i]);
+            }
+
+            int invoiceCount = in.readInt();
+            in.readInt(); // every invoice is listed
+            List<Invoice> invoices = new ArrayList<>(invoiceCount);
+            for (int i = 0; i < invoiceCount; i++) {
+                String uuid = in.readUuid().toString();
+                int customer = in.readInt();
+                int salesPerson = in.readInt();
+                int epochDay = in.readInt();
+                List<Item> lines = new ArrayList<>();
+                for (int l = in.readInt(); l > 0; l--) {
+                    lines.add(readLine(in, items[in.readInt()], in.readByte()));
+                }
+                Invoice invoice = new Invoice(uuid, epochDay == Integer.MIN_VALUE ? null : LocalDate.ofEpochDay(epochDay),
+                        customer < 0 ? null : companies[customer], salesPerson < 0 ? null : persons[salesPerson], lines);
+                registry.addInvoice(invoice);
+                invoices.add(invoice);
+            }
+            log.info("Loaded snapshot of {} persons, {} companies, {} items, {} invoices from {} in {} ms",
+                    persons.length, companies.length, items.length, invoiceCount, filePath,
+                    (System.nanoTime() - start) / 1_000_000);
+            return new EntitySnapshot(listed(persons, listedPersons), listed(companies, listedCompanies),
+                    listed(items, listedItems), invoices);
+        }
+    }
+
+    /** Rebuilds an invoice line from its catalog item and the line's own values. */
+    private static Item readLine(MappedInput in, Item base, byte type) {
+        switch (type) {
+            case ColumnarInvoiceStore.LEASE:
+                LocalDate startDate = LocalDate.ofEpochDay(in.readInt());
+                return new Lease(base.getUuid(), (Equipment) base, startDate, LocalDate.ofEpochDay(in.readInt()));
+            case ColumnarInvoiceStore.RENTAL:
+                return new Rental(base.getUuid(), (Equipment) base, in.readDouble());
+            case ColumnarInvoiceStore.MATERIAL:
+                return ((Material) base).withQuantity(in.readInt());
+            case ColumnarInvoiceStore.CONTRACT:
+                return ((Contract) base).withCost(Money.toDollars(in.readLong()));
+            default:
+                return base;
+        }
+    }
+
+    private static <T> List<T> listed(T[] table, int listed) {
+        return new ArrayList<>(List.of(table).subList(0, listed));
+    }
+
+    /**
+     * Sequential reader over a file mapped a window at a time, since a
+     * single mapping cannot exceed 2GB.
+     */
+    private static class MappedInput {
+        private static final long WINDOW = 1L << 30;
+
+        private final FileChannel channel;
+        private final long size;
+        private MappedByteBuffer buffer;
+        private long bufferStart;
+
+        MappedInput(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            seek(0);
+        }
+
+        /** Maps a window starting at the given file position. */
+        void seek(long position) throws IOException {
+            if (position > size) {
+                throw new IOException("Snapshot truncated at " + position + " of " + size + " bytes");
+            }
+            bufferStart = position;
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW, size - position));
+        }
+
+        /** Makes sure the next {@code bytes} bytes are in the current window. */
+        private void need(int bytes) {
+            if (buffer.remaining() < bytes) {
+                try {
+                    seek(bufferStart + buffer.position());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (buffer.remaining() < bytes) {
+                    throw new UncheckedIOException(new IOException("Snapshot truncated"));
+                }
+            }
+        }
+
+        byte readByte() {
+            need(1);
+            return buffer.get();
+        }
+
+        int readInt() {
+            need(4);
+            return buffer.getInt();
+        }
+
+        long readLong() {
+            need(8);
+            return buffer.getLong();
+        }
+
+        double readDouble() {
+            need(8);
+            return buffer.getDouble();
+        }
+
+        UUID readUuid() {
+            need(16);
+            return new UUID(buffer.getLong(), buffer.getLong());
+        }
+
+        String readString(String[] strings) {
+            int index = readInt();
+            return index < 0 ? null : strings[index];
+        }
+
+        String readUtf8() {
+            int length = readInt();
+            need(length);
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
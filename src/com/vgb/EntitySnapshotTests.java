@@ -0,0 +1,57 @@
+package com.vgb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+public class EntitySnapshotTests {
+
+    /**
+     * Tests that every kind of line, and a contact and customer missing from
+     * the loader's lists, survive a save and load with shared references
+     * and totals intact.
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        Person contact = new Person(UUID.randomUUID().toString(), "Bob", "Johnson", "555-9101",
+                Arrays.asList("bob@example.com"));
+        Person sales = new Person(UUID.randomUUID().toString(), "Ken", "Doll", "555-1038", null);
+        Address address = new Address("123 Main St", "New York", "NY", "10001");
+        Company listed = new Company(UUID.randomUUID().toString(), contact, "CoolTech", address);
+        Company unlisted = new Company(UUID.randomUUID().toString(), contact, "TechyToys", address);
+        Equipment crane = new Equipment(UUID.randomUUID().toString(), "Crane", "CR300", 50000.0);
+        Material sand = new Material(UUID.randomUUID().toString(), "Sand", "Truckload", 30.0, 0);
+        Contract pour = new Contract(UUID.randomUUID().toString(), "Pour", listed.getUuid().toString(), 0);
+        Invoice first = new Invoice(UUID.randomUUID().toString(), LocalDate.of(2025, 3, 10), listed, sales,
+                Arrays.asList(crane, new Lease(crane.getUuid(), crane, "2025-06-15", "2028-03-22"),
+                        new Rental(crane.getUuid(), crane, 25.5), sand.withQuantity(50), pour.withCost(12000.25)));
+        Invoice second = new Invoice(UUID.randomUUID().toString(), LocalDate.of(2025, 4, 22), unlisted, sales,
+                Arrays.asList(sand.withQuantity(7)));
+
+        File file = File.createTempFile("entities", ".bin");
+        file.deleteOnExit();
+        EntitySnapshot.save(file.getPath(), Arrays.asList(sales), Arrays.asList(listed),
+                Arrays.asList(crane, sand, pour), Arrays.asList(first, second));
+        EntityRegistry registry = new EntityRegistry();
+        EntitySnapshot snapshot = EntitySnapshot.load(file.getPath(), registry);
+
+        assertEquals(1, snapshot.getPersons().size());
+        assertEquals(1, snapshot.getCompanies().size());
+        assertEquals(3, snapshot.getItems().size());
+        List<Invoice> invoices = snapshot.getInvoices();
+        assertEquals(first.toString(), invoices.get(0).toString());
+        assertEquals(second.toString(), invoices.get(1).toString());
+        assertEquals(first.calculateGrandTotalCents(), invoices.get(0).calculateGrandTotalCents());
+        assertSame(registry.getPerson(contact.getUuid()), invoices.get(0).getCustomer().getContact());
+        assertSame(registry.getItem(crane.getUuid()), invoices.get(0).getItems().get(0));
+        assertEquals("TechyToys", registry.getCompany(unlisted.getUuid()).getName());
+        assertSame(invoices.get(0).getCustomer().getContact(), invoices.get(1).getCustomer().getContact());
+    }
+}
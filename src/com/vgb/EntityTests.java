@@ -61,6 +61,21 @@ public class EntityTests {
         assertEquals(22.14, material.getTax(), TOLERANCE);
     }
 
+    /**
+     * Tests that invoice lines for the same catalog material are independent.
+     */
+    @Test
+    public void testMaterialLinesAreIndependent() {
+        Material catalog = new Material(UUID.randomUUID().toString(), "Steel", "Ton", 9.99, 0);
+
+        Material small = catalog.withQuantity(1);
+        Material large = catalog.withQuantity(31);
+
+        assertEquals(9.99, small.getCost(), TOLERANCE);
+        assertEquals(309.69, large.getCost(), TOLERANCE);
+        assertEquals(0, catalog.getQuantity());
+    }
+
     /**
      * Tests Contract toString() output.
      */
@@ -1,13 +1,17 @@
 package com.vgb;
 
 public class Equipment extends Item {
-    private String modelNumber;
-    private double retailPrice;
+    private final String modelNumber;
+    private final double retailPrice;
+    private final transient long retailPriceCents;
+    private final transient long taxCents;
 
     public Equipment(String uuid, String name, String modelNumber, double retailPrice) {
         super(uuid, name);
         this.modelNumber = modelNumber;
         this.retailPrice = retailPrice;
+        this.retailPriceCents = Money.toCents(retailPrice);
+        this.taxCents = Money.percent(retailPriceCents, 525, Money.DEFAULT_ROUNDING); // 5.25% tax
     }
 
     public String getModelNumber() {
@@ -18,15 +22,19 @@ public class Equipment extends Item {
         return retailPrice;
     }
 
+    public long getRetailPriceCents() {
+        return retailPriceCents;
+    }
+
     /** Implements cost and tax for purchased equipment */
     @Override
-    public double getCost() {
-        return retailPrice;
+    public long getCostCents() {
+        return retailPriceCents;
     }
 
     @Override
-    public double getTax() {
-        return roundToCent(retailPrice * 0.0525);
+    public long getTaxCents() {
+        return taxCents;
     }
 
 }
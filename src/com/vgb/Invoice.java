@@ -1,16 +1,21 @@
 package com.vgb;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 
 public class Invoice {
-    private UUID invoiceUuid;
-    private LocalDate invoiceDate;
-    private Company customer;
-    private Person salesPerson;
-    private List<Item> items;
+    private final UUID invoiceUuid;
+    private final LocalDate invoiceDate;
+    private final Company customer;
+    private final Person salesPerson;
+    private final List<Item> items;
+
+    /** Totals over the current items; null until first asked for, and after addItem */
+    private volatile Totals totals;
 
     /** Constructor */
     public Invoice(String uuid, LocalDate date, Company customer, Person salesPerson, List<Item> items) {
@@ -18,7 +23,7 @@ public class Invoice {
         this.invoiceDate = date;
         this.customer = customer;
         this.salesPerson = salesPerson;
-        this.items = (items != null) ? items : new ArrayList<>();
+        this.items = (items != null) ? new ArrayList<>(items) : new ArrayList<>();
     }
 
     /** Getters */
@@ -38,62 +43,107 @@ public class Invoice {
         return salesPerson;
     }
 
+    /** @return a read-only view of the invoice's lines */
     public List<Item> getItems() {
-        return items;
+        return Collections.unmodifiableList(items);
     }
 
     /** Adds an item to the invoice */
     public void addItem(Item item) {
         if (item != null) {
             items.add(item);
+            totals = null;
         }
     }
 
     /** Calculates subtotal (before tax) */
     public double calculateSubtotal() {
-        return roundToCent(items.stream().mapToDouble(Item::getCost).sum());
+        return Money.toDollars(totals().subtotalCents);
     }
 
     /** Calculates total tax */
     public double calculateTaxTotal() {
-        return roundToCent(items.stream().mapToDouble(Item::getTax).sum());
+        return Money.toDollars(totals().taxTotalCents);
     }
 
     /** Calculates grand total (subtotal + tax) */
     public double calculateGrandTotal() {
-        return roundToCent(calculateSubtotal() + calculateTaxTotal());
+        return Money.toDollars(calculateGrandTotalCents());
     }
 
-    /** Formats the invoice output */
-    @Override
-    public String toString() {
-        StringBuilder sb = new StringBuilder();
-        sb.append(String.format("Invoice#  %s\n", invoiceUuid));
-        sb.append(String.format("Date      %s\n", invoiceDate));
-        sb.append(customer.toString()).append("\n");
-        sb.append(String.format("Sales Person: \n%s\n", salesPerson.toString())); 
+    /** Calculates subtotal (before tax) in cents */
+    public long calculateSubtotalCents() {
+        return totals().subtotalCents;
+    }
+
+    /** Calculates total tax in cents */
+    public long calculateTaxTotalCents() {
+        return totals().taxTotalCents;
+    }
+
+    /** Calculates grand total (subtotal + tax) in cents */
+    public long calculateGrandTotalCents() {
+        Totals t = totals();
+        return t.subtotalCents + t.taxTotalCents;
+    }
 
-        sb.append(String.format("Items (%d)\n", items.size()));
-        sb.append("-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-                          -=-=-=-=-=- -=-=-=-=-=-\n");
+    /** Returns the cached totals, summing the items only if they changed */
+    private Totals totals() {
+        Totals t = totals;
+        if (t == null) {
+            t = new Totals(items);
+            totals = t;
+        }
+        return t;
+    }
+
+    /** Writes the detailed invoice: header, customer, sales person, items and totals */
+    public void writeTo(ReportWriter out) throws IOException {
+        out.append("Invoice#  ").append(invoiceUuid).newLine();
+        out.append("Date      ").append(invoiceDate).newLine();
+        customer.writeTo(out);
+        out.newLine();
+        out.append("Sales Person: ").newLine();
+        salesPerson.writeTo(out);
+        out.newLine();
+
+        out.append("Items (").number(items.size(), 0).append(')').newLine();
+        out.append("-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-=-                          -=-=-=-=-=- -=-=-=-=-=-\n");
 
-        double totalTax = 0;
-        double totalAmount = 0;
         for (Item item : items) {
-            totalTax += item.getTax();
-            totalAmount += item.getCost();
-            sb.append(item.toString()).append("\n");
+            item.writeTo(out);
+            out.newLine();
         }
 
-        sb.append("                                                    -=-=-=-=-=- -=-=-=-=-=-\n");
-        sb.append(String.format("                         Subtotals $%10.2f $%10.2f\n", roundToCent(totalTax), roundToCent(totalAmount)));
-        sb.append(String.format("                       Grand Total             $%10.2f\n", roundToCent(totalAmount + totalTax)));
+        Totals t = totals();
+        out.append("                                                    -=-=-=-=-=- -=-=-=-=-=-\n");
+        out.append("                         Subtotals $").money(t.taxTotalCents, 10)
+           .append(" $").money(t.subtotalCents, 10).newLine();
+        out.append("                       Grand Total             $")
+           .money(calculateGrandTotalCents(), 10).newLine();
+    }
 
-        return sb.toString();
+    /** Formats the invoice output */
+    @Override
+    public String toString() {
+        return ReportWriter.render(this::writeTo);
     }
 
-    /** Helper method to round a value to the nearest cent */
-    private double roundToCent(double price) {
-        return Math.round(price * 100.0) / 100.0;
+    /** Immutable snapshot of an invoice's totals, summed in whole cents in one pass */
+    private static class Totals {
+        private final long subtotalCents;
+        private final long taxTotalCents;
+
+        Totals(List<Item> items) {
+            long cost = 0;
+            long tax = 0;
+            for (Item item : items) {
+                cost += item.getCostCents();
+                tax += item.getTaxCents();
+            }
+            this.subtotalCents = cost;
+            this.taxTotalCents = tax;
+        }
     }
 }
 
@@ -0,0 +1,73 @@
+// InvoiceCursor.java
+package com.vgb;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Forward-only stream of complete invoices over the rows of the joined
+ * invoice query, opened with {@link DataLoader#openInvoiceCursor}.
+ *
+ * The query returns one row per invoice line, ordered by invoice; each call
+ * to {@link #next()} consumes the rows of one invoice and hands back the
+ * assembled Invoice. Nothing keeps a reference to it afterwards, so a
+ * caller that writes each invoice out and drops it runs in memory bounded
+ * by one invoice plus the shared persons, companies and items.
+ */
+public class InvoiceCursor implements AutoCloseable {
+    private final DataLoader loader;
+    private final Connection conn;
+    private final PreparedStatement ps;
+    private final ResultSet rs;
+    private boolean onRow;
+    private long count;
+
+    InvoiceCursor(DataLoader loader, Connection conn, PreparedStatement ps, ResultSet rs) throws SQLException {
+        this.loader = loader;
+        this.conn = conn;
+        this.ps = ps;
+        this.rs = rs;
+        this.onRow = rs.next();
+    }
+
+    /**
+     * Reads the next invoice with all of its lines.
+     *
+     * @return the invoice, or null when there are no more
+     */
+    public Invoice next() throws SQLException {
+        if (!onRow) {
+            return null;
+        }
+        String invoiceUuid = rs.getString("invoiceUuid");
+        Invoice invoice = loader.joinedInvoice(rs);
+        do {
+            loader.addJoinedLine(rs, invoice);
+            onRow = rs.next();
+        } while (onRow && invoiceUuid.equals(rs.getString("invoiceUuid")));
+        count++;
+        return invoice;
+    }
+
+    /** @return how many invoices have been read so far */
+    public long getCount() {
+        return count;
+    }
+
+    /** Closes the result set and returns the connection to its pool. */
+    @Override
+    public void close() throws SQLException {
+        onRow = false;
+        try {
+            rs.close();
+        } finally {
+            try {
+                ps.close();
+            } finally {
+                conn.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.vgb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+public class InvoiceCursorTests {
+
+    /** What the fake JDBC objects were asked to do. */
+    private static class Calls {
+        final List<String> closed = new ArrayList<>();
+        boolean failQuery;
+    }
+
+    private static <T> T fake(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler));
+    }
+
+    /**
+     * Builds a stand-in Connection whose statements return the given rows,
+     * keyed by column label, or fail on executeQuery.
+     */
+    private static Connection fakeConnection(List<Map<String, String>> rows, Calls calls) {
+        int[] row = { -1 };
+        ResultSet rs = fake(ResultSet.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "next":
+                    return ++row[0] < rows.size();
+                case "getString":
+                    return rows.get(row[0]).get((String) args[0]);
+                case "close":
+                    calls.closed.add("rs");
+                    return null;
+                default:
+                    return null;
+            }
+        });
+        PreparedStatement ps = fake(PreparedStatement.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "executeQuery":
+                    if (calls.failQuery) {
+                        throw new SQLException("query failed");
+                    }
+                    return rs;
+                case "close":
+                    calls.closed.add("ps");
+                    return null;
+                default:
+                    return null;
+            }
+        });
+        return fake(Connection.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    return ps;
+                case "close":
+                    calls.closed.add("conn");
+                    return null;
+                case "isClosed":
+                    return false;
+                case "isValid":
+                    return true;
+                case "getAutoCommit":
+                    return true;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private static Map<String, String> row(String invoiceUuid, String itemUuid, String itemType,
+                                           String itemField2, String itemField3, String lineField1) {
+        Map<String, String> row = new HashMap<>();
+        row.put("invoiceUuid", invoiceUuid);
+        row.put("date", "2025-03-10");
+        row.put("itemUuid", itemUuid);
+        row.put("itemType", itemType);
+        row.put("itemName", "Item");
+        row.put("itemField1", "Unit");
+        row.put("itemField2", itemField2);
+        row.put("itemField3", itemField3);
+        row.put("lineField1", lineField1);
+        return row;
+    }
+
+    /**
+     * Tests that the cursor groups rows into invoices, including one
+     * without lines, and that closing it closes the result set and
+     * statement and returns the connection.
+     */
+    @Test
+    public void testReadsInvoicesAndCloses() throws SQLException {
+        String first = UUID.randomUUID().toString();
+        String second = UUID.randomUUID().toString();
+        String equipment = UUID.randomUUID().toString();
+        String material = UUID.randomUUID().toString();
+        List<Map<String, String>> rows = List.of(
+                row(first, equipment, "E", "1000.00", null, "P"),
+                row(first, material, "M", "2.50", "0", "3"),
+                row(second, null, null, null, null, null));
+        Calls calls = new Calls();
+        ConnectionPool pool = new ConnectionPool(() -> fakeConnection(rows, calls), 0, 1, 1000, 60_000, 0);
+        DBConnection.setPool(pool);
+        try {
+            try (InvoiceCursor cursor = new DataLoader().openInvoiceCursor()) {
+                Invoice invoice = cursor.next();
+                assertEquals(first, invoice.getInvoiceUuid().toString());
+                assertEquals(2, invoice.getItems().size());
+                assertEquals(3, ((Material) invoice.getItems().get(1)).getQuantity());
+                assertEquals(0, cursor.next().getItems().size());
+                assertNull(cursor.next());
+                assertEquals(2, cursor.getCount());
+            }
+            assertEquals(List.of("rs", "ps"), calls.closed);
+            assertEquals(0, pool.getStats().getActive());
+        } finally {
+            DBConnection.shutdown();
+        }
+    }
+
+    /**
+     * Tests that a failed query closes its statement before the pooled
+     * connection goes back to the pool.
+     */
+    @Test
+    public void testFailedOpenClosesStatement() {
+        Calls calls = new Calls();
+        calls.failQuery = true;
+        ConnectionPool pool = new ConnectionPool(() -> fakeConnection(List.of(), calls), 0, 1, 1000, 60_000, 0);
+        DBConnection.setPool(pool);
+        try {
+            assertThrows(SQLException.class, () -> new DataLoader().openInvoiceCursor());
+            assertEquals(List.of("ps"), calls.closed);
+            assertEquals(0, pool.getStats().getActive());
+        } finally {
+            DBConnection.shutdown();
+        }
+    }
+}
@@ -10,13 +10,16 @@ import org.apache.logging.log4j.Logger;
 /**
  * This is a collection of utility methods that define a general API for
  * interacting with the database supporting this application.
- * Each method in this class opens its own JDBC Connection and cleans up
+ * Each method in this class borrows its own pooled JDBC Connection and cleans up
  * resources automatically via try‐with‐resources. All operations are logged
  * to provide traceability and error diagnosis.
  */
 public class InvoiceData {
     private static final Logger log = LogManager.getLogger(InvoiceData.class);
 
+    /** States, zip codes and address ids already known to be in the database. */
+    private static final AddressCache addressCache = new AddressCache();
+
     /**
      * Removes all records from all tables in the database.
      * Disables foreign‐key checks, truncates each table in reverse‐dependency
@@ -39,12 +42,33 @@ public class InvoiceData {
             }
             stmt.execute("SET FOREIGN_KEY_CHECKS = 1");
             conn.commit();
+            addressCache.clear();
             log.info("Cleared all data from database");
         } catch (SQLException e) {
             log.error("Error clearing database", e);
         }
     }
 
+    /**
+     * Opens a bulk-import session for loading many rows at once with JDBC
+     * batches rather than one round trip per row. Close the session when done.
+     *
+     * @param batchSize      rows sent per executeBatch
+     * @param commitPerBatch true to commit each batch on its own, false to
+     *                       import everything in one transaction
+     * @return the open session
+     * @throws SQLException if no connection can be obtained
+     */
+    public static BulkImport openBulkImport(int batchSize, boolean commitPerBatch) throws SQLException {
+        Connection conn = DBConnection.getConnection();
+        try {
+            return new BulkImport(conn, batchSize, commitPerBatch);
+        } catch (SQLException | RuntimeException e) {
+            conn.close();
+            throw e;
+        }
+    }
+
     /**
      * Method to add a person record to the database with the provided data.
      *
@@ -94,16 +118,9 @@ public class InvoiceData {
      * Skips if that stateCode already exists.
      */
     public static void addState(String stateCode, String stateName) {
-        String sql = "INSERT INTO State(stateCode, name) VALUES(?, ?)";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, stateCode);
-            ps.setString(2, stateName);
-            ps.executeUpdate();
-            log.info("Added State {} ({})", stateCode, stateName);
-        } catch (SQLIntegrityConstraintViolationException dup) {
-            // already exists—no action needed
-            log.debug("State {} already exists, skipping", stateCode);
+        try (Connection conn = DBConnection.getConnection()) {
+            addressCache.ensureState(conn, stateCode, stateName);
+            log.info("Ensured State {} ({})", stateCode, stateName);
         } catch (SQLException e) {
             log.error("Error adding State {}", stateCode, e);
         }
@@ -115,16 +132,9 @@ public class InvoiceData {
      * Skips if that zipCode already exists.
      */
     public static void addZipCode(String zipCode, String city) {
-        String sql = "INSERT INTO ZipCode(zipCode, city) VALUES(?, ?)";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, zipCode);
-            ps.setString(2, city);
-            ps.executeUpdate();
-            log.info("Added ZipCode {} ({})", zipCode, city);
-        } catch (SQLIntegrityConstraintViolationException dup) {
-            // already exists—no action needed
-            log.debug("ZipCode {} already exists, skipping", zipCode);
+        try (Connection conn = DBConnection.getConnection()) {
+            addressCache.ensureZipCode(conn, zipCode, city);
+            log.info("Ensured ZipCode {} ({})", zipCode, city);
         } catch (SQLException e) {
             log.error("Error adding ZipCode {}", zipCode, e);
         }
@@ -132,9 +142,24 @@ public class InvoiceData {
 
 
     /**
-     * Adds a company record, ensuring its address can be inserted
-     * by first seeding State and ZipCode, then inserting/reusing Address,
-     * and finally inserting Company(uuid, contactUuid, name, addressId).
+     * Loads all existing states, zip codes and addresses into the address
+     * cache, so that onboarding companies at known addresses never has to
+     * query for them.
+     */
+    public static void prewarmAddressCache() {
+        try (Connection conn = DBConnection.getConnection()) {
+            addressCache.prewarm(conn);
+        } catch (SQLException e) {
+            log.error("Error warming address cache", e);
+        }
+    }
+
+
+    /**
+     * Adds a company record, resolving its address through the address
+     * cache (which seeds State and ZipCode and inserts or reuses the
+     * Address on a miss), and finally inserting
+     * Company(uuid, contactUuid, name, addressId).
      */
     public static void addCompany(UUID companyUuid,
                                   UUID contactUuid,
@@ -143,56 +168,17 @@ public class InvoiceData {
                                   String city,
                                   String stateCode,
                                   String zipCode) {
-        // 0) ensure referenced PKs exist
-        addState(stateCode, stateCode);  // using code as placeholder name
-        addZipCode(zipCode, city);
-
-        int addressId = -1;
-
         try (Connection conn = DBConnection.getConnection()) {
-            // 1) Try to find existing Address
-            String lookupSql =
-                "SELECT id FROM Address WHERE street=? AND city=? AND stateCode=? AND zipCode=?";
-            try (PreparedStatement lookup = conn.prepareStatement(lookupSql)) {
-                lookup.setString(1, street);
-                lookup.setString(2, city);
-                lookup.setString(3, stateCode);
-                lookup.setString(4, zipCode);
-                try (ResultSet rs = lookup.executeQuery()) {
-                    if (rs.next()) {
-                        addressId = rs.getInt("id");
-                        log.info("Found existing Address id={} for Company {}", addressId, companyUuid);
-                    }
-                }
-            }
-
-            // 2) If not found, insert a new Address
-            if (addressId < 0) {
-                String insertAddrSql =
-                    "INSERT INTO Address(street, city, stateCode, zipCode) VALUES(?, ?, ?, ?)";
-                try (PreparedStatement insertAddr = conn.prepareStatement(insertAddrSql,
-                         Statement.RETURN_GENERATED_KEYS)) {
-                    insertAddr.setString(1, street);
-                    insertAddr.setString(2, city);
-                    insertAddr.setString(3, stateCode);
-                    insertAddr.setString(4, zipCode);
-                    insertAddr.executeUpdate();
-                    try (ResultSet keys = insertAddr.getGeneratedKeys()) {
-                        if (keys.next()) {
-                            addressId = keys.getInt(1);
-                            log.info("Inserted new Address id={} for Company {}", addressId, companyUuid);
-                        }
-                    }
-                }
-            }
+            // 1) Find or create the Address (and its State and ZipCode)
+            int addressId = addressCache.resolveAddressId(conn, street, city, stateCode, zipCode);
 
-            // 3) Sanity check
+            // 2) Sanity check
             if (addressId < 0) {
                 log.error("Could not determine addressId for {} – aborting Company insert", companyUuid);
                 return;
             }
 
-            // 4) Insert Company row
+            // 3) Insert Company row
             String insertCompSql =
                 "INSERT INTO Company(uuid, contactUuid, name, addressId) VALUES(?, ?, ?, ?)";
             try (PreparedStatement insertComp = conn.prepareStatement(insertCompSql)) {
@@ -0,0 +1,158 @@
+// InvoiceQuery.java
+package com.vgb;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Filter and page criteria for {@link DataLoader#loadInvoicesMatching}.
+ * Every criterion is optional and each one is pushed into the WHERE clause
+ * of the Invoice query. Matching invoices come back ordered by date, then
+ * UUID; pages can be taken either by offset or, cheaper on deep pages, by
+ * keyset with {@link #after(Invoice)}.
+ *
+ * <pre>
+ * new InvoiceQuery().between(monday, sunday).forCustomer(uuid).limit(100)
+ * </pre>
+ */
+public class InvoiceQuery {
+    private LocalDate fromDate;
+    private LocalDate toDate;
+    private UUID customerUuid;
+    private UUID salesPersonUuid;
+    private List<UUID> invoiceUuids;
+    private LocalDate afterDate;
+    private UUID afterUuid;
+    private int limit = -1;
+    private long offset;
+
+    /** Only invoices dated on or between the given days; either bound may be null. */
+    public InvoiceQuery between(LocalDate from, LocalDate to) {
+        this.fromDate = from;
+        this.toDate = to;
+        return this;
+    }
+
+    /** Only invoices billed to the given company. */
+    public InvoiceQuery forCustomer(UUID customerUuid) {
+        this.customerUuid = customerUuid;
+        return this;
+    }
+
+    /** Only invoices sold by the given person. */
+    public InvoiceQuery soldBy(UUID salesPersonUuid) {
+        this.salesPersonUuid = salesPersonUuid;
+        return this;
+    }
+
+    /** Only the invoices with these UUIDs; keep the list to a few thousand per query. */
+    public InvoiceQuery withUuids(Collection<UUID> invoiceUuids) {
+        this.invoiceUuids = new ArrayList<>(invoiceUuids);
+        return this;
+    }
+
+    /** Keyset pagination: only invoices ordered after the last one of the previous page. */
+    public InvoiceQuery after(Invoice last) {
+        this.afterDate = last.getInvoiceDate();
+        this.afterUuid = last.getInvoiceUuid();
+        return this;
+    }
+
+    /** At most this many invoices. */
+    public InvoiceQuery limit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    /** Skip this many matching invoices; prefer {@link #after(Invoice)} for deep pages. */
+    public InvoiceQuery offset(long offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset must not be negative");
+        }
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * @return a SELECT of the matching Invoice rows (uuid, customerUuid,
+     *         salesPersonUuid, date), with a '?' for each bound value
+     */
+    String toSql() {
+        List<String> where = new ArrayList<>();
+        if (fromDate != null) {
+            where.add("date >= ?");
+        }
+        if (toDate != null) {
+            where.add("date <= ?");
+        }
+        if (customerUuid != null) {
+            where.add("customerUuid = ?");
+        }
+        if (salesPersonUuid != null) {
+            where.add("salesPersonUuid = ?");
+        }
+        if (invoiceUuids != null) {
+            where.add(invoiceUuids.isEmpty() ? "FALSE"
+                    : "uuid IN (" + String.join(", ", Collections.nCopies(invoiceUuids.size(), "?")) + ")");
+        }
+        if (afterUuid != null) {
+            where.add("(date > ? OR (date = ? AND uuid > ?))");
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT uuid, customerUuid, salesPersonUuid, date FROM Invoice");
+        if (!where.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", where));
+        }
+        sql.append(" ORDER BY date, uuid");
+        if (limit >= 0 || offset > 0) {
+            sql.append(" LIMIT ? OFFSET ?");
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Binds this query's values to the placeholders of {@link #toSql()}.
+     *
+     * @param index position of the first placeholder
+     * @return position after the last placeholder bound
+     */
+    int bind(PreparedStatement ps, int index) throws SQLException {
+        if (fromDate != null) {
+            ps.setDate(index++, Date.valueOf(fromDate));
+        }
+        if (toDate != null) {
+            ps.setDate(index++, Date.valueOf(toDate));
+        }
+        if (customerUuid != null) {
+            ps.setString(index++, customerUuid.toString());
+        }
+        if (salesPersonUuid != null) {
+            ps.setString(index++, salesPersonUuid.toString());
+        }
+        if (invoiceUuids != null) {
+            for (UUID uuid : invoiceUuids) {
+                ps.setString(index++, uuid.toString());
+            }
+        }
+        if (afterUuid != null) {
+            ps.setDate(index++, Date.valueOf(afterDate));
+            ps.setDate(index++, Date.valueOf(afterDate));
+            ps.setString(index++, afterUuid.toString());
+        }
+        if (limit >= 0 || offset > 0) {
+            ps.setLong(index++, limit >= 0 ? limit : Long.MAX_VALUE);
+            ps.setLong(index++, offset);
+        }
+        return index;
+    }
+}
@@ -1,22 +1,59 @@
 // InvoiceReport.java
 package com.vgb;
 
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
  * Main driver: loads data and produces reports.
+ *
+ * Run with {@code --snapshot <file>} for the incremental nightly mode: only
+ * invoices added or changed since the snapshot are loaded, the snapshot is
+ * patched and saved, and the summary and customer reports are printed from
+ * its aggregates.
+ *
+ * Run with {@code --cache <file>} to start from an {@link EntitySnapshot}:
+ * the entities are mapped in from the file if it exists, and otherwise
+ * loaded from the database and saved to it for the next run. The file is
+ * never refreshed on its own, so its age is logged whenever it is used;
+ * add {@code --refresh} to reload from the database and rewrite it.
  */
 public class InvoiceReport {
 	private static final Logger log = LogManager.getLogger(InvoiceReport.class);
 
 
     public static void main(String[] args) {
+        if (args.length == 2 && "--snapshot".equals(args[0])) {
+            runIncremental(args[1]);
+            return;
+        }
+        String cachePath = args.length >= 2 && "--cache".equals(args[0]) ? args[1] : null;
+        boolean refresh = args.length == 3 && "--refresh".equals(args[2]);
         DataLoader loader = new DataLoader();
         try {
-            loader.loadAllData();
+            if (cachePath != null && !refresh && Files.exists(Paths.get(cachePath))) {
+                Instant saved = Files.getLastModifiedTime(Paths.get(cachePath)).toInstant();
+                log.info("Using entity cache {} saved {} ago; run with --refresh to reload it",
+                        cachePath, Duration.between(saved, Instant.now()).truncatedTo(ChronoUnit.SECONDS));
+                loader.loadFromSnapshot(cachePath);
+            } else {
+                loader.loadAllData();
+                if (cachePath != null) {
+                    loader.saveSnapshot(cachePath);
+                }
+            }
             List<Invoice> invoices = loader.getInvoices();
             CreateReport report = new CreateReport(invoices);
             report.generateSummaryReport();
@@ -24,6 +61,32 @@ public class InvoiceReport {
             report.generateDetailedInvoiceReport();
         } catch (SQLException e) {
             log.error("Database error in main", e);
+        } catch (IOException e) {
+            log.error("I/O error with entity cache", e);
+        } finally {
+            DBConnection.shutdown();
+        }
+    }
+
+    private static void runIncremental(String snapshotPath) {
+        DataLoader loader = new DataLoader();
+        try {
+            ReportSnapshot snapshot = ReportSnapshot.load(snapshotPath);
+            Map<UUID, String> hashes = loader.loadInvoiceHashes();
+            Set<UUID> stale = snapshot.stale(hashes);
+            log.info("{} of {} invoices new or changed since the snapshot", stale.size(), hashes.size());
+            snapshot.apply(hashes, loader.loadInvoicesByUuid(stale));
+            snapshot.save(snapshotPath);
+
+            ReportWriter out = new ReportWriter(new OutputStreamWriter(System.out, System.out.charset()));
+            CreateReport.generateSummaryReport(snapshot, out);
+            CreateReport.generateCustomerReport(snapshot, out);
+        } catch (SQLException e) {
+            log.error("Database error in incremental report", e);
+        } catch (IOException e) {
+            log.error("I/O error in incremental report", e);
+        } finally {
+            DBConnection.shutdown();
         }
     }
 }
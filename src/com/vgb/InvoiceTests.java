@@ -1,12 +1,21 @@
 package com.vgb;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.Test;
+import java.io.StringWriter;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 public class InvoiceTests {
 
@@ -38,4 +47,120 @@ public class InvoiceTests {
         assertEquals(invoice.calculateGrandTotal(), invoice.calculateGrandTotal(), TOLERANCE);
         assertEquals(company.toString(), invoice.getCustomer().toString());
     }
+
+    /**
+     * Tests that the top-K ranking matches the head of the full stable
+     * ranking, ties included, and that neither reorders the input.
+     */
+    @Test
+    public void testTopByTotal() {
+        Company company = new Company(UUID.randomUUID().toString(), null, "TechCorp",
+                new Address("123 Main St", "New York", "NY", "10001"));
+        double[] costs = {500, 1500, 250, 1500, 1000, 250, 750};
+        List<Invoice> invoices = new ArrayList<>();
+        for (double cost : costs) {
+            Contract contract = new Contract(UUID.randomUUID().toString(), "Job", company.getUuid().toString(), cost);
+            invoices.add(new Invoice(UUID.randomUUID().toString(), LocalDate.now(), company, null,
+                    Arrays.asList(contract)));
+        }
+        List<Invoice> original = new ArrayList<>(invoices);
+
+        List<Invoice> ranked = CreateReport.rankByTotal(invoices);
+        assertEquals(Arrays.asList(invoices.get(1), invoices.get(3), invoices.get(4)), ranked.subList(0, 3));
+        for (int k = 0; k <= costs.length + 1; k++) {
+            assertEquals(ranked.subList(0, Math.min(k, costs.length)), CreateReport.topByTotal(invoices, k));
+        }
+        assertEquals(original, invoices);
+    }
+
+    /**
+     * Tests that the parallel detailed report, with far more invoices than
+     * the render window, is byte-identical to the sequential one.
+     */
+    @Test
+    public void testParallelDetailedReportMatchesSequential() {
+        Person person = new Person(UUID.randomUUID().toString(), "John", "Doe", "123-456-7890", new ArrayList<>());
+        Company company = new Company(UUID.randomUUID().toString(), person, "TechCorp",
+                new Address("123 Main St", "New York", "NY", "10001"));
+        List<Invoice> invoices = new ArrayList<>();
+        for (int i = 0; i < 20 * CreateReport.RENDER_WINDOW; i++) {
+            Material material = new Material(UUID.randomUUID().toString(), "Steel", "Ton", 9.99, i);
+            invoices.add(new Invoice(UUID.randomUUID().toString(), LocalDate.now(), company, person,
+                    Arrays.asList(material)));
+        }
+
+        StringWriter sequential = new StringWriter();
+        new CreateReport(invoices, false, new ReportWriter(sequential)).generateDetailedInvoiceReport();
+        StringWriter parallel = new StringWriter();
+        new CreateReport(invoices, true, new ReportWriter(parallel)).generateDetailedInvoiceReport();
+        assertEquals(sequential.toString(), parallel.toString());
+    }
+
+    /**
+     * Line whose cost records the thread that computed it, and holds the
+     * first computation until a second thread joins or a second passes.
+     */
+    private static class ThreadRecordingItem extends Item {
+        private final Set<Thread> threads;
+        private final CountDownLatch twoThreads;
+
+        ThreadRecordingItem(Set<Thread> threads, CountDownLatch twoThreads) {
+            super(UUID.randomUUID().toString(), "Job");
+            this.threads = threads;
+            this.twoThreads = twoThreads;
+        }
+
+        @Override
+        public long getCostCents() {
+            if (threads.add(Thread.currentThread())) {
+                twoThreads.countDown();
+            }
+            try {
+                twoThreads.await(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 100;
+        }
+
+        @Override
+        public long getTaxCents() {
+            return 0;
+        }
+    }
+
+    /**
+     * Tests that in parallel mode both summary reports compute the invoice
+     * totals on more than one thread, before ranking computes them one by
+     * one. The report runs inside its own pool so that the parallel stream
+     * has workers however many cores there are.
+     */
+    @Test
+    public void testParallelSummaryComputesTotalsConcurrently() throws InterruptedException, ExecutionException {
+        Company company = new Company(UUID.randomUUID().toString(), null, "TechCorp",
+                new Address("123 Main St", "New York", "NY", "10001"));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int k : new int[] {-1, 3}) {
+                Set<Thread> threads = ConcurrentHashMap.newKeySet();
+                CountDownLatch twoThreads = new CountDownLatch(2);
+                List<Invoice> invoices = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    invoices.add(new Invoice(UUID.randomUUID().toString(), LocalDate.now(), company, null,
+                            Arrays.asList(new ThreadRecordingItem(threads, twoThreads))));
+                }
+                CreateReport report = new CreateReport(invoices, true, new ReportWriter(new StringWriter()));
+                pool.submit(() -> {
+                    if (k < 0) {
+                        report.generateSummaryReport();
+                    } else {
+                        report.generateSummaryReport(k);
+                    }
+                }).get();
+                assertTrue(threads.size() > 1);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
 }
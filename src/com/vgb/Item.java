@@ -1,8 +1,10 @@
 package com.vgb;
 
+import java.io.IOException;
+
 public abstract class Item {
-    private String uuid;
-    private String name;
+    private final String uuid;
+    private final String name;
 
     public Item(String uuid, String name) {
         this.uuid = uuid;
@@ -17,25 +19,32 @@ public abstract class Item {
         return name;
     }
 
-    /**
-     * Rounds the price to the tenthes place and returns a double
-     * @param price
-     * @return
-     */
-    public double roundToCent(double price) {
-	    return Math.round(price * 100.0) / 100.0;
-	}
-    
     /** 
-     * Abstract methods to be implemented by subclasses 
+     * Abstract methods to be implemented by subclasses; amounts are exact
+     * whole cents (see {@link Money})
      */
-    public abstract double getCost();
-    public abstract double getTax();
+    public abstract long getCostCents();
+    public abstract long getTaxCents();
+
+    /** @return the cost in dollars */
+    public double getCost() {
+        return Money.toDollars(getCostCents());
+    }
+
+    /** @return the tax in dollars */
+    public double getTax() {
+        return Money.toDollars(getTaxCents());
+    }
+
+    /** Writes the name and UUID, then the tax and cost columns on a second line. */
+    public void writeTo(ReportWriter out) throws IOException {
+        out.padRight(name, 40).append(" (").append(uuid).append(')').newLine()
+           .spaces(54).append(" $").money(getTaxCents(), 10).append(" $").money(getCostCents(), 10);
+    }
 
     @Override
     public String toString() {
-        return String.format("%-40s (%s)\n%54s $%10.2f $%10.2f",
-                name, uuid, "", getTax(), getCost());
+        return ReportWriter.render(this::writeTo);
     }
 
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -4,30 +4,53 @@ import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 
 public class Lease extends Item {
-    private Equipment equipment;
-    private LocalDate startDate;
-    private LocalDate endDate;
+    private final Equipment equipment;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final transient long costCents;
 
     public Lease(String uuid, Equipment equipment, String startDate, String endDate) {
+        this(uuid, equipment, LocalDate.parse(startDate), LocalDate.parse(endDate));
+    }
+
+    public Lease(String uuid, Equipment equipment, LocalDate startDate, LocalDate endDate) {
         super(uuid, "Lease of " + equipment.getName());
         this.equipment = equipment;
-        this.startDate = LocalDate.parse(startDate);
-        this.endDate = LocalDate.parse(endDate);
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.costCents = computeCostCents();
+    }
+
+    public Equipment getEquipment() {
+        return equipment;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
     }
 
     /** Implements cost and tax for leasing */
     @Override
-    public double getCost() {
+    public long getCostCents() {
+        return costCents;
+    }
+
+    /** Amortizes the equipment price over the lease term; computed once per lease */
+    private long computeCostCents() {
         long leaseDays = ChronoUnit.DAYS.between(startDate, endDate) + 1;
-        double leaseYears = (double) leaseDays / 365.0; // Convert days to years
-        double amortizationFactor = leaseYears / 5.0; // Spread cost over 5 years dynamically
-        double cost = amortizationFactor * equipment.getRetailPrice() * 1.5; // Apply markup
-        return roundToCent(cost);
+        // (days / 365) years, spread over 5 years, with a 1.5x markup:
+        // price * days * 1.5 / (365 * 5) = price * days * 3 / 3650
+        long numerator = Math.multiplyExact(Math.multiplyExact(equipment.getRetailPriceCents(), leaseDays), 3);
+        return Money.divide(numerator, 3650, Money.DEFAULT_ROUNDING);
     }
 
     @Override
-    public double getTax() {
-        return (getCost() > 12500) ? 1500 : 0;
+    public long getTaxCents() {
+        return (costCents > 1_250_000) ? 150_000 : 0; // $1,500 on leases over $12,500
     }
 }
 
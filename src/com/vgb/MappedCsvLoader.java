@@ -0,0 +1,167 @@
+// MappedCsvLoader.java
+package com.vgb;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Parses large CSV files in parallel. Each file is memory-mapped, cut into
+ * line-aligned chunks, and every chunk is parsed by its own task on a
+ * fork-join pool. Chunk results are concatenated in file order, so callers
+ * see the same row sequence as a sequential read.
+ *
+ * Chunks are cut at line breaks, so quoted fields must not themselves span
+ * lines; use CsvReader directly for such files.
+ */
+public class MappedCsvLoader {
+    private static final Logger log = LogManager.getLogger(MappedCsvLoader.class);
+
+    /** Default target size of one parse chunk, in bytes. */
+    public static final long DEFAULT_CHUNK_SIZE = 8L * 1024 * 1024;
+
+    private static final int SCAN_BUFFER_SIZE = 4096;
+
+    private final ForkJoinPool pool;
+    private final long chunkSize;
+
+    public MappedCsvLoader() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param pool      pool the chunk tasks run on
+     * @param chunkSize target chunk size in bytes; chunks are extended to the
+     *                  next line break and never exceed 2GB
+     */
+    public MappedCsvLoader(ForkJoinPool pool, long chunkSize) {
+        if (chunkSize <= 0 || chunkSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("chunkSize must be between 1 and " + Integer.MAX_VALUE);
+        }
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Starts parsing a file in the background.
+     *
+     * @see #parse(String, Function)
+     */
+    public <T> ForkJoinTask<List<T>> submit(String filePath, Function<String[], T> rowMapper) {
+        return pool.submit(() -> {
+            try {
+                return parse(filePath, rowMapper);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Waits for a task from {@link #submit}, rethrowing a read failure as the
+     * original IOException.
+     */
+    public static <T> T await(ForkJoinTask<T> task) throws IOException {
+        try {
+            return task.join();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Parses every row after the header line of a CSV file.
+     *
+     * @param filePath  the file to parse
+     * @param rowMapper converts a row's fields to a result; null results are dropped.
+     *                  Runs concurrently on pool threads, so it must be thread-safe.
+     * @return mapped rows in file order
+     * @throws IOException if the file cannot be read or a row is malformed
+     */
+    public <T> List<T> parse(String filePath, Function<String[], T> rowMapper) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = nextLineStart(channel, 0, size);
+
+            List<ForkJoinTask<List<T>>> chunks = new ArrayList<>();
+            while (start < size) {
+                long end = Math.min(size, start + chunkSize);
+                if (end < size) {
+                    end = nextLineStart(channel, end - 1, size);
+                }
+                long chunkStart = start;
+                long chunkEnd = end;
+                chunks.add(pool.submit(() -> {
+                    try {
+                        return parseChunk(channel, chunkStart, chunkEnd, rowMapper);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+                start = end;
+            }
+            log.debug("Parsing {} ({} bytes) in {} chunks", filePath, size, chunks.size());
+
+            List<T> rows = new ArrayList<>();
+            for (ForkJoinTask<List<T>> chunk : chunks) {
+                rows.addAll(await(chunk));
+            }
+            return rows;
+        }
+    }
+
+    private static <T> List<T> parseChunk(FileChannel channel, long start, long end,
+                                          Function<String[], T> rowMapper) throws IOException {
+        MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        CharBuffer chars = StandardCharsets.UTF_8.decode(bytes);
+        List<T> rows = new ArrayList<>();
+        try (CsvReader csv = new CsvReader(new CharArrayReader(
+                chars.array(), chars.arrayOffset() + chars.position(), chars.remaining()))) {
+            String[] parts;
+            while ((parts = csv.readRow()) != null) {
+                T row = rowMapper.apply(parts);
+                if (row != null) {
+                    rows.add(row);
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * @return the offset just past the first line feed at or after {@code from},
+     *         or {@code size} if there is none
+     */
+    private static long nextLineStart(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long pos = from;
+        while (pos < size) {
+            buf.clear();
+            int n = channel.read(buf, pos);
+            if (n <= 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                if (buf.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += n;
+        }
+        return size;
+    }
+}
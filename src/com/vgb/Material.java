@@ -1,15 +1,22 @@
 package com.vgb;
 
+import java.math.BigDecimal;
+
 public class Material extends Item {
-    private String unit;
-    private double costPerUnit;
-    private int quantity;
+    private final String unit;
+    private final double costPerUnit;
+    private final int quantity;
+    private final transient long costCents;
+    private final transient long taxCents;
 
     public Material(String uuid, String name, String unit, double costPerUnit, int quantity) {
         super(uuid, name);
         this.unit = unit;
         this.costPerUnit = costPerUnit;
         this.quantity = quantity;
+        this.costCents = Money.toCents(
+                BigDecimal.valueOf(costPerUnit).multiply(BigDecimal.valueOf(quantity)), Money.DEFAULT_ROUNDING);
+        this.taxCents = Money.percent(costCents, 715, Money.DEFAULT_ROUNDING); // 7.15% tax
     }
 
     public String getUnit() {
@@ -24,19 +31,23 @@ public class Material extends Item {
         return quantity;
     }
     
-    public void setQuantity(int quantity) {
-    	this.quantity = quantity;
+    /**
+     * @return a copy of this material in the given quantity, for use as an
+     *         invoice line
+     */
+    public Material withQuantity(int quantity) {
+        return new Material(getUuid(), getName(), unit, costPerUnit, quantity);
     }
 
     /** Implements cost and tax for materials */
     @Override
-    public double getCost() {
-        return roundToCent(costPerUnit * quantity);
+    public long getCostCents() {
+        return costCents;
     }
 
     @Override
-    public double getTax() {
-        return roundToCent(getCost() * 0.0715); // 7.15% tax
+    public long getTaxCents() {
+        return taxCents;
     }
 
 }
@@ -0,0 +1,102 @@
+// Money.java
+package com.vgb;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point money arithmetic on whole cents held in a {@code long}.
+ *
+ * Prices arrive as decimal text or doubles and are converted to cents once,
+ * exactly, when an item is built; from then on costs, taxes and totals are
+ * plain integer sums. Every operation that can produce a fraction of a cent
+ * takes an explicit rounding mode.
+ */
+public final class Money {
+
+    /** Rounding used for all pricing unless a caller says otherwise. */
+    public static final RoundingMode DEFAULT_ROUNDING = RoundingMode.HALF_UP;
+
+    private Money() {
+    }
+
+    /**
+     * Converts a decimal amount of dollars to cents. The double's shortest
+     * decimal form is used, so 9.99 becomes exactly 999.
+     */
+    public static long toCents(double amount, RoundingMode mode) {
+        return toCents(BigDecimal.valueOf(amount), mode);
+    }
+
+    public static long toCents(double amount) {
+        return toCents(amount, DEFAULT_ROUNDING);
+    }
+
+    /** Converts an exact decimal amount of dollars to cents. */
+    public static long toCents(BigDecimal amount, RoundingMode mode) {
+        return amount.movePointRight(2).setScale(0, mode).longValueExact();
+    }
+
+    /** Parses decimal text such as "75000.00" into cents. */
+    public static long parseCents(String amount, RoundingMode mode) {
+        return toCents(new BigDecimal(amount.trim()), mode);
+    }
+
+    /** @return the amount in dollars; exact for any realistic amount */
+    public static double toDollars(long cents) {
+        return cents / 100.0;
+    }
+
+    /**
+     * Applies a rate given in basis points (1/100 of a percent), e.g. 525 for 5.25%.
+     */
+    public static long percent(long cents, long basisPoints, RoundingMode mode) {
+        return divide(Math.multiplyExact(cents, basisPoints), 10_000, mode);
+    }
+
+    /**
+     * Integer division rounded according to {@code mode}, without going
+     * through floating point.
+     *
+     * @throws ArithmeticException if the mode is UNNECESSARY and the division is inexact
+     */
+    public static long divide(long numerator, long denominator, RoundingMode mode) {
+        long quotient = numerator / denominator;
+        long remainder = numerator % denominator;
+        if (remainder == 0) {
+            return quotient;
+        }
+        // +1 if the exact quotient is positive, -1 if negative
+        int signum = (int) (((numerator ^ denominator) >> 63) | 1);
+        boolean increment;
+        switch (mode) {
+            case UNNECESSARY:
+                throw new ArithmeticException("Rounding necessary: " + numerator + "/" + denominator);
+            case DOWN:
+                increment = false;
+                break;
+            case UP:
+                increment = true;
+                break;
+            case FLOOR:
+                increment = signum < 0;
+                break;
+            case CEILING:
+                increment = signum > 0;
+                break;
+            default:
+                // compare |remainder| with half of |denominator| without overflowing
+                long absRemainder = Math.abs(remainder);
+                int cmp = Long.compare(absRemainder, Math.abs(denominator) - absRemainder);
+                if (mode == RoundingMode.HALF_UP) {
+                    increment = cmp >= 0;
+                } else if (mode == RoundingMode.HALF_DOWN) {
+                    increment = cmp > 0;
+                } else {
+                    increment = cmp > 0 || (cmp == 0 && (quotient & 1) != 0);
+                }
+                break;
+        }
+        return increment ? quotient + signum : quotient;
+    }
+}
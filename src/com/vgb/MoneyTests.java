@@ -0,0 +1,46 @@
+package com.vgb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import java.math.RoundingMode;
+
+public class MoneyTests {
+
+    /**
+     * Tests conversion of decimal amounts to exact cents.
+     */
+    @Test
+    public void testToCents() {
+        assertEquals(999, Money.toCents(9.99));
+        assertEquals(7500000, Money.parseCents("75000.00", RoundingMode.HALF_UP));
+        assertEquals(13, Money.toCents(0.125, RoundingMode.HALF_UP));
+        assertEquals(12, Money.toCents(0.125, RoundingMode.HALF_EVEN));
+    }
+
+    /**
+     * Tests basis-point rates, e.g. 7.15% of $309.69 = $22.142835.
+     */
+    @Test
+    public void testPercent() {
+        assertEquals(2214, Money.percent(30969, 715, RoundingMode.HALF_UP));
+        assertEquals(499406, Money.percent(9512500, 525, RoundingMode.HALF_UP));
+    }
+
+    /**
+     * Tests each rounding mode on positive and negative halves.
+     */
+    @Test
+    public void testDivideRounding() {
+        assertEquals(3, Money.divide(5, 2, RoundingMode.HALF_UP));
+        assertEquals(-3, Money.divide(-5, 2, RoundingMode.HALF_UP));
+        assertEquals(2, Money.divide(5, 2, RoundingMode.HALF_DOWN));
+        assertEquals(2, Money.divide(5, 2, RoundingMode.HALF_EVEN));
+        assertEquals(4, Money.divide(7, 2, RoundingMode.HALF_EVEN));
+        assertEquals(2, Money.divide(7, 3, RoundingMode.DOWN));
+        assertEquals(3, Money.divide(7, 3, RoundingMode.UP));
+        assertEquals(-3, Money.divide(-7, 3, RoundingMode.FLOOR));
+        assertEquals(-2, Money.divide(-7, 3, RoundingMode.CEILING));
+        assertEquals(4, Money.divide(8, 2, RoundingMode.UNNECESSARY));
+    }
+}
@@ -1,15 +1,16 @@
 package com.vgb;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
 public class Person{
-    private UUID uuid;
-    private String firstName;
-    private String lastName;
-    private String phone;
-    private List<String> emails;
+    private final UUID uuid;
+    private final String firstName;
+    private final String lastName;
+    private final String phone;
+    private final List<String> emails;
 
     public Person(String uuid, String firstName, String lastName, String phone, List<String> emails) {
         this.uuid = UUID.fromString(uuid);
@@ -39,9 +40,16 @@ public class Person{
 		return emails;
 	}
 	
+	/** Writes "last, first (uuid)" and the email list on a second line. */
+	public void writeTo(ReportWriter out) throws IOException {
+	    out.append(lastName).append(", ").append(firstName)
+	       .append(" (").append(uuid).append(')').newLine()
+	       .append(emails);
+	}
+
 	@Override
 	public String toString() {
-	    return lastName + ", " + firstName + " (" + uuid + ")\n" + emails;
+	    return ReportWriter.render(this::writeTo);
 	}
 
     
@@ -0,0 +1,191 @@
+// RecordReader.java
+package com.vgb;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Streams the records of a JSON or XML data file, as written by
+ * {@link DataConverter}, one at a time.
+ *
+ * A JSON file is an array of objects; an XML file is a root element whose
+ * children are the records. Each record is handed over as a map from field
+ * name to value, where a value is a String (numbers and booleans as their
+ * text), a nested map, or a list. Only the current record is ever held in
+ * memory, so files of any size can be read.
+ *
+ * XML has no arrays, so the elements named in {@link #XML_LISTS} are read
+ * as lists of their children, whatever the children are called.
+ */
+public class RecordReader {
+
+    /** XML elements whose children form a list: a person's emails and an invoice's lines. */
+    public static final Set<String> XML_LISTS = Set.of("emails", "items");
+
+    private static final XMLInputFactory XML_INPUT = createXmlInput();
+
+    private static XMLInputFactory createXmlInput() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        // data files come from partners: never resolve DTDs or external entities
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    private RecordReader() {
+    }
+
+    /**
+     * Reads a .json or .xml file, chosen by its extension.
+     *
+     * @return the number of records read
+     */
+    public static int read(String filePath, Consumer<Map<String, Object>> handler) throws IOException {
+        String lower = filePath.toLowerCase();
+        boolean xml = lower.endsWith(".xml");
+        if (!xml && !lower.endsWith(".json")) {
+            throw new IOException("Not a .json or .xml file: " + filePath);
+        }
+        try (Reader in = Files.newBufferedReader(Paths.get(filePath), StandardCharsets.UTF_8)) {
+            return xml ? readXml(in, handler) : readJson(in, handler);
+        }
+    }
+
+    /**
+     * Reads a JSON array of objects.
+     *
+     * @return the number of records read
+     */
+    public static int readJson(Reader in, Consumer<Map<String, Object>> handler) throws IOException {
+        JsonReader json = new JsonReader(in);
+        int count = 0;
+        json.beginArray();
+        while (json.hasNext()) {
+            handler.accept(jsonObject(json));
+            count++;
+        }
+        json.endArray();
+        return count;
+    }
+
+    private static Map<String, Object> jsonObject(JsonReader json) throws IOException {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            fields.put(name, jsonValue(json));
+        }
+        json.endObject();
+        return fields;
+    }
+
+    private static Object jsonValue(JsonReader json) throws IOException {
+        JsonToken token = json.peek();
+        switch (token) {
+            case BEGIN_OBJECT:
+                return jsonObject(json);
+            case BEGIN_ARRAY:
+                List<Object> list = new ArrayList<>();
+                json.beginArray();
+                while (json.hasNext()) {
+                    list.add(jsonValue(json));
+                }
+                json.endArray();
+                return list;
+            case NULL:
+                json.nextNull();
+                return null;
+            case BOOLEAN:
+                return Boolean.toString(json.nextBoolean());
+            default:
+                // strings, and numbers as their original text
+                return json.nextString();
+        }
+    }
+
+    /**
+     * Reads the child elements of an XML document's root element.
+     *
+     * @return the number of records read
+     */
+    public static int readXml(Reader in, Consumer<Map<String, Object>> handler) throws IOException {
+        XMLStreamReader xml = null;
+        try {
+            xml = XML_INPUT.createXMLStreamReader(in);
+            int count = 0;
+            xml.nextTag(); // root
+            while (xml.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                Object record = xmlValue(xml);
+                handler.accept(record instanceof Map ? asMap(record) : new LinkedHashMap<>());
+                count++;
+            }
+            return count;
+        } catch (XMLStreamException e) {
+            throw new IOException("Malformed XML: " + e.getMessage(), e);
+        } finally {
+            if (xml != null) {
+                try {
+                    xml.close();
+                } catch (XMLStreamException e) {
+                    // the underlying reader is closed by the caller
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the element the reader is on, leaving it on that element's end
+     * tag: a list for {@link #XML_LISTS}, a map if it has child elements,
+     * otherwise its text.
+     */
+    private static Object xmlValue(XMLStreamReader xml) throws XMLStreamException {
+        List<Object> list = XML_LISTS.contains(xml.getLocalName()) ? new ArrayList<>() : null;
+        Map<String, Object> fields = null;
+        StringBuilder text = new StringBuilder();
+        while (true) {
+            switch (xml.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    String name = xml.getLocalName();
+                    Object value = xmlValue(xml);
+                    if (list != null) {
+                        list.add(value);
+                    } else {
+                        if (fields == null) {
+                            fields = new LinkedHashMap<>();
+                        }
+                        fields.put(name, value);
+                    }
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                    text.append(xml.getText());
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    return list != null ? list : fields != null ? fields : text.toString();
+                default:
+                    break;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object value) {
+        return (Map<String, Object>) value;
+    }
+}
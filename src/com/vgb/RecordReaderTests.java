@@ -0,0 +1,46 @@
+package com.vgb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class RecordReaderTests {
+
+    /**
+     * Tests that a JSON and an XML person read to the same record, with
+     * nested objects as maps and emails as a list.
+     */
+    @Test
+    public void testJsonAndXmlAgree() throws IOException {
+        String json = "[{\"uuid\":\"u1\",\"age\":42,\"emails\":[\"a@x.com\",\"b@x.com\"],"
+                + "\"address\":{\"city\":\"Lincoln\"}}]";
+        String xml = "<data>\n  <com.vgb.Person>\n    <uuid>u1</uuid>\n    <age>42</age>\n"
+                + "    <emails>\n      <string>a@x.com</string>\n      <string>b@x.com</string>\n    </emails>\n"
+                + "    <address>\n      <city>Lincoln</city>\n    </address>\n  </com.vgb.Person>\n</data>";
+        List<Map<String, Object>> fromJson = new ArrayList<>();
+        List<Map<String, Object>> fromXml = new ArrayList<>();
+        assertEquals(1, RecordReader.readJson(new StringReader(json), fromJson::add));
+        assertEquals(1, RecordReader.readXml(new StringReader(xml), fromXml::add));
+        assertEquals(fromJson, fromXml);
+        assertEquals(List.of("a@x.com", "b@x.com"), fromJson.get(0).get("emails"));
+        assertEquals("42", fromJson.get(0).get("age"));
+    }
+
+    /**
+     * Tests that empty lists and documents read as empty.
+     */
+    @Test
+    public void testEmpty() throws IOException {
+        List<Map<String, Object>> records = new ArrayList<>();
+        assertEquals(0, RecordReader.readJson(new StringReader("[]"), records::add));
+        assertEquals(0, RecordReader.readXml(new StringReader("<data/>"), records::add));
+        assertEquals(1, RecordReader.readXml(new StringReader("<data><invoice><items/></invoice></data>"),
+                records::add));
+        assertEquals(List.of(), records.get(0).get("items"));
+    }
+}
@@ -1,23 +1,39 @@
 package com.vgb;
 
+import java.math.BigDecimal;
+
 public class Rental extends Item {
-    private Equipment equipment;
-    private double hours;
+    private final Equipment equipment;
+    private final double hours;
+    private final transient long costCents;
+    private final transient long taxCents;
 
     public Rental(String uuid, Equipment equipment, double hours) {
         super(uuid, "Rental of " + equipment.getName());
         this.equipment = equipment;
         this.hours = hours;
+        // 0.1% of the retail price per hour
+        this.costCents = Money.toCents(BigDecimal.valueOf(equipment.getRetailPrice())
+                .multiply(BigDecimal.valueOf(hours)).movePointLeft(3), Money.DEFAULT_ROUNDING);
+        this.taxCents = Money.percent(costCents, 438, Money.DEFAULT_ROUNDING); // 4.38% tax
+    }
+
+    public Equipment getEquipment() {
+        return equipment;
+    }
+
+    public double getHours() {
+        return hours;
     }
 
     /** Implements cost and tax for renting */
     @Override
-    public double getCost() {
-        return roundToCent(equipment.getRetailPrice() * 0.001 * hours);
+    public long getCostCents() {
+        return costCents;
     }
 
     @Override
-    public double getTax() {
-        return roundToCent(getCost() * 0.0438);
+    public long getTaxCents() {
+        return taxCents;
     }
 }
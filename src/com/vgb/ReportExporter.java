@@ -0,0 +1,334 @@
+// ReportExporter.java
+package com.vgb;
+
+import com.google.gson.Strictness;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Writes report records in a machine-readable {@link ReportFormat}, for
+ * consumers that would otherwise scrape the padded text reports.
+ *
+ * A report is started with one of the {@code start} methods, followed by
+ * its records, and ended with {@link #finish()}. Amounts are always exact
+ * whole cents. The three reports carry these fields, in this order:
+ * <ul>
+ * <li>summary: invoiceUuid, customerUuid, customerName, itemCount,
+ *     taxTotalCents, grandTotalCents</li>
+ * <li>customer: customerUuid, customerName, invoiceCount, grandTotalCents</li>
+ * <li>detailed: invoiceUuid, date, customerUuid, customerName,
+ *     salesPersonUuid, salesPersonName, the lines (itemUuid, itemType,
+ *     itemName, costCents, taxCents), subtotalCents, taxTotalCents,
+ *     grandTotalCents</li>
+ * </ul>
+ *
+ * CSV has a header row and, for the detailed report, one row per line with
+ * the invoice columns repeated (an invoice without lines gets one row with
+ * empty line columns). JSON Lines has one object per record, the detailed
+ * lines nested in an "items" array, streamed with Gson's JsonWriter.
+ *
+ * BINARY starts with the int {@link #MAGIC}, a version byte and a report
+ * byte (1 summary, 2 customer, 3 detailed). Each record is an int length
+ * followed by that many bytes, and an int 0 ends the stream. Inside a
+ * record, UUIDs are a presence byte and two longs, strings are written by
+ * {@link DataOutputStream#writeUTF}, dates are an int epoch day, item types
+ * are the {@link ColumnarInvoiceStore} type byte, counts are ints and
+ * amounts are longs; the detailed lines are preceded by their count.
+ * All integers are big-endian.
+ */
+public class ReportExporter implements Flushable {
+
+    /** "VGBR", the first four bytes of a binary report. */
+    public static final int MAGIC = 0x56474252;
+    public static final byte VERSION = 1;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ReportFormat format;
+    private ReportWriter csv;
+    private Writer text;
+    private JsonWriter json;
+    private DataOutputStream data;
+    private ByteArrayOutputStream recordBytes;
+    private DataOutputStream record;
+
+    /**
+     * @param out where the records go; it is flushed by {@link #finish()}
+     *            but never closed
+     */
+    public ReportExporter(ReportFormat format, OutputStream out) {
+        this.format = format;
+        switch (format) {
+            case CSV:
+                csv = new ReportWriter(out);
+                break;
+            case JSON_LINES:
+                text = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+                json = new JsonWriter(text);
+                json.setStrictness(Strictness.LENIENT); // allows one top-level value per line
+                break;
+            default:
+                data = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+                recordBytes = new ByteArrayOutputStream(256);
+                record = new DataOutputStream(recordBytes);
+                break;
+        }
+    }
+
+    public void startSummary() throws IOException {
+        start(1, "invoiceUuid,customerUuid,customerName,itemCount,taxTotalCents,grandTotalCents");
+    }
+
+    public void startCustomers() throws IOException {
+        start(2, "customerUuid,customerName,invoiceCount,grandTotalCents");
+    }
+
+    public void startDetailed() throws IOException {
+        start(3, "invoiceUuid,date,customerUuid,customerName,salesPersonUuid,salesPersonName,"
+                + "itemUuid,itemType,itemName,costCents,taxCents,subtotalCents,taxTotalCents,grandTotalCents");
+    }
+
+    private void start(int report, String csvHeader) throws IOException {
+        if (format == ReportFormat.CSV) {
+            csv.append(csvHeader).newLine();
+        } else if (format == ReportFormat.BINARY) {
+            data.writeInt(MAGIC);
+            data.writeByte(VERSION);
+            data.writeByte(report);
+        }
+    }
+
+    /** Writes one summary report record. */
+    public void summary(Invoice invoice) throws IOException {
+        Company customer = invoice.getCustomer();
+        switch (format) {
+            case CSV:
+                csv.append(invoice.getInvoiceUuid()).append(',');
+                csvUuid(customer == null ? null : customer.getUuid());
+                csvString(customer == null ? null : customer.getName());
+                csv.number(invoice.getItems().size(), 0).append(',')
+                   .number(invoice.calculateTaxTotalCents(), 0).append(',')
+                   .number(invoice.calculateGrandTotalCents(), 0).newLine();
+                break;
+            case JSON_LINES:
+                json.beginObject();
+                json.name("invoiceUuid").value(invoice.getInvoiceUuid().toString());
+                jsonUuid("customerUuid", customer == null ? null : customer.getUuid());
+                json.name("customerName").value(customer == null ? null : customer.getName());
+                json.name("itemCount").value(invoice.getItems().size());
+                json.name("taxTotalCents").value(invoice.calculateTaxTotalCents());
+                json.name("grandTotalCents").value(invoice.calculateGrandTotalCents());
+                endJson();
+                break;
+            default:
+                writeUuid(invoice.getInvoiceUuid());
+                writeUuid(customer == null ? null : customer.getUuid());
+                record.writeUTF(customer == null ? "" : customer.getName());
+                record.writeInt(invoice.getItems().size());
+                record.writeLong(invoice.calculateTaxTotalCents());
+                record.writeLong(invoice.calculateGrandTotalCents());
+                endRecord();
+                break;
+        }
+    }
+
+    /** Writes one customer report record. */
+    public void customer(Company customer, int invoiceCount, long grandTotalCents) throws IOException {
+        switch (format) {
+            case CSV:
+                csvUuid(customer.getUuid());
+                csvString(customer.getName());
+                csv.number(invoiceCount, 0).append(',').number(grandTotalCents, 0).newLine();
+                break;
+            case JSON_LINES:
+                json.beginObject();
+                jsonUuid("customerUuid", customer.getUuid());
+                json.name("customerName").value(customer.getName());
+                json.name("invoiceCount").value(invoiceCount);
+                json.name("grandTotalCents").value(grandTotalCents);
+                endJson();
+                break;
+            default:
+                writeUuid(customer.getUuid());
+                record.writeUTF(customer.getName() == null ? "" : customer.getName());
+                record.writeInt(invoiceCount);
+                record.writeLong(grandTotalCents);
+                endRecord();
+                break;
+        }
+    }
+
+    /** Writes one detailed report record: an invoice with all of its lines. */
+    public void invoice(Invoice invoice) throws IOException {
+        switch (format) {
+            case CSV:
+                if (invoice.getItems().isEmpty()) {
+                    csvInvoiceColumns(invoice);
+                    csv.append(",,,,,");
+                    csvTotals(invoice);
+                }
+                for (Item item : invoice.getItems()) {
+                    csvInvoiceColumns(invoice);
+                    csv.append(item.getUuid()).append(',')
+                       .append(ColumnarInvoiceStore.typeName(ColumnarInvoiceStore.typeOf(item))).append(',');
+                    csvString(item.getName());
+                    csv.number(item.getCostCents(), 0).append(',')
+                       .number(item.getTaxCents(), 0).append(',');
+                    csvTotals(invoice);
+                }
+                break;
+            case JSON_LINES:
+                json.beginObject();
+                json.name("invoiceUuid").value(invoice.getInvoiceUuid().toString());
+                json.name("date").value(invoice.getInvoiceDate().toString());
+                Company customer = invoice.getCustomer();
+                jsonUuid("customerUuid", customer == null ? null : customer.getUuid());
+                json.name("customerName").value(customer == null ? null : customer.getName());
+                Person salesPerson = invoice.getSalesPerson();
+                jsonUuid("salesPersonUuid", salesPerson == null ? null : salesPerson.getUuid());
+                json.name("salesPersonName").value(personName(salesPerson));
+                json.name("items").beginArray();
+                for (Item item : invoice.getItems()) {
+                    json.beginObject();
+                    json.name("itemUuid").value(item.getUuid());
+                    json.name("itemType").value(ColumnarInvoiceStore.typeName(ColumnarInvoiceStore.typeOf(item)));
+                    json.name("itemName").value(item.getName());
+                    json.name("costCents").value(item.getCostCents());
+                    json.name("taxCents").value(item.getTaxCents());
+                    json.endObject();
+                }
+                json.endArray();
+                json.name("subtotalCents").value(invoice.calculateSubtotalCents());
+                json.name("taxTotalCents").value(invoice.calculateTaxTotalCents());
+                json.name("grandTotalCents").value(invoice.calculateGrandTotalCents());
+                endJson();
+                break;
+            default:
+                writeUuid(invoice.getInvoiceUuid());
+                record.writeInt((int) invoice.getInvoiceDate().toEpochDay());
+                writeUuid(invoice.getCustomer() == null ? null : invoice.getCustomer().getUuid());
+                record.writeUTF(invoice.getCustomer() == null ? "" : invoice.getCustomer().getName());
+                writeUuid(invoice.getSalesPerson() == null ? null : invoice.getSalesPerson().getUuid());
+                String salesName = personName(invoice.getSalesPerson());
+                record.writeUTF(salesName == null ? "" : salesName);
+                record.writeInt(invoice.getItems().size());
+                for (Item item : invoice.getItems()) {
+                    writeUuid(UUID.fromString(item.getUuid()));
+                    record.writeByte(ColumnarInvoiceStore.typeOf(item));
+                    record.writeUTF(item.getName() == null ? "" : item.getName());
+                    record.writeLong(item.getCostCents());
+                    record.writeLong(item.getTaxCents());
+                }
+                record.writeLong(invoice.calculateSubtotalCents());
+                record.writeLong(invoice.calculateTaxTotalCents());
+                record.writeLong(invoice.calculateGrandTotalCents());
+                endRecord();
+                break;
+        }
+    }
+
+    /** Ends the report (binary gets its terminator) and flushes everything written. */
+    public void finish() throws IOException {
+        if (format == ReportFormat.BINARY) {
+            data.writeInt(0);
+        }
+        flush();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        switch (format) {
+            case CSV:
+                csv.flush();
+                break;
+            case JSON_LINES:
+                json.flush();
+                break;
+            default:
+                data.flush();
+                break;
+        }
+    }
+
+    /** "last, first", as in the text reports */
+    private static String personName(Person person) {
+        return person == null ? null : person.getLastName() + ", " + person.getFirstName();
+    }
+
+    private void csvInvoiceColumns(Invoice invoice) throws IOException {
+        csv.append(invoice.getInvoiceUuid()).append(',')
+           .append(invoice.getInvoiceDate()).append(',');
+        Company customer = invoice.getCustomer();
+        csvUuid(customer == null ? null : customer.getUuid());
+        csvString(customer == null ? null : customer.getName());
+        Person salesPerson = invoice.getSalesPerson();
+        csvUuid(salesPerson == null ? null : salesPerson.getUuid());
+        csvString(personName(salesPerson));
+    }
+
+    private void csvTotals(Invoice invoice) throws IOException {
+        csv.number(invoice.calculateSubtotalCents(), 0).append(',')
+           .number(invoice.calculateTaxTotalCents(), 0).append(',')
+           .number(invoice.calculateGrandTotalCents(), 0).newLine();
+    }
+
+    private void csvUuid(UUID uuid) throws IOException {
+        if (uuid != null) {
+            csv.append(uuid);
+        }
+        csv.append(',');
+    }
+
+    /** Writes a field and its trailing comma, quoting it as CsvReader expects when needed. */
+    private void csvString(String s) throws IOException {
+        if (s != null) {
+            boolean quote = false;
+            for (int i = 0; i < s.length() && !quote; i++) {
+                char c = s.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (quote) {
+                csv.append('"').append(s.replace("\"", "\"\"")).append('"');
+            } else {
+                csv.append(s);
+            }
+        }
+        csv.append(',');
+    }
+
+    private void jsonUuid(String name, UUID uuid) throws IOException {
+        json.name(name).value(uuid == null ? null : uuid.toString());
+    }
+
+    private void endJson() throws IOException {
+        json.endObject();
+        text.write('\n');
+    }
+
+    private void writeUuid(UUID uuid) throws IOException {
+        if (uuid == null) {
+            record.writeByte(0);
+        } else {
+            record.writeByte(1);
+            record.writeLong(uuid.getMostSignificantBits());
+            record.writeLong(uuid.getLeastSignificantBits());
+        }
+    }
+
+    /** Copies the buffered record to the output behind its length. */
+    private void endRecord() throws IOException {
+        data.writeInt(recordBytes.size());
+        recordBytes.writeTo(data);
+        recordBytes.reset();
+    }
+}
@@ -0,0 +1,160 @@
+package com.vgb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.UUID;
+
+public class ReportExporterTests {
+
+    private final Person sales = new Person(UUID.randomUUID().toString(), "Ken", "Doll", "555-1038", null);
+    private final Company customer = new Company(UUID.randomUUID().toString(), sales, "Smith, \"Big\" Co",
+            new Address("123 Main St", "New York", "NY", "10001"));
+    private final Equipment unnamed = new Equipment(UUID.randomUUID().toString(), null, "EX200", 75000.0);
+    private final Material sand = new Material(UUID.randomUUID().toString(), "Sand", "Truckload", 30.0, 0);
+    private final Invoice withLines = new Invoice(UUID.randomUUID().toString(), LocalDate.of(2025, 3, 10),
+            customer, sales, Arrays.asList(unnamed, sand.withQuantity(50)));
+    private final Invoice withoutLines = new Invoice(UUID.randomUUID().toString(), LocalDate.of(2025, 4, 22),
+            customer, sales, null);
+
+    private ByteArrayOutputStream export(ReportFormat format, int report) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ReportExporter exporter = new ReportExporter(format, bytes);
+        if (report == 1) {
+            exporter.startSummary();
+            exporter.summary(withLines);
+        } else if (report == 2) {
+            exporter.startCustomers();
+            exporter.customer(customer, 2, 12345);
+        } else {
+            exporter.startDetailed();
+            exporter.invoice(withLines);
+            exporter.invoice(withoutLines);
+        }
+        exporter.finish();
+        return bytes;
+    }
+
+    /**
+     * Tests that the CSV export reads back through CsvReader, quoted
+     * customer name included, with one row per line and one row for an
+     * invoice without lines.
+     */
+    @Test
+    public void testCsvReadsBack() throws IOException {
+        String text = export(ReportFormat.CSV, 3).toString(StandardCharsets.UTF_8);
+        try (CsvReader csv = new CsvReader(new StringReader(text))) {
+            assertEquals(14, csv.readRow().length);
+            String[] first = csv.readRow();
+            assertEquals(withLines.getInvoiceUuid().toString(), first[0]);
+            assertEquals("Smith, \"Big\" Co", first[3]);
+            assertEquals("Doll, Ken", first[5]);
+            assertEquals("Equipment", first[7]);
+            assertEquals("", first[8]);
+            assertEquals(Long.toString(unnamed.getCostCents()), first[9]);
+            String[] second = csv.readRow();
+            assertEquals("Material", second[7]);
+            assertEquals(Long.toString(withLines.calculateGrandTotalCents()), second[13]);
+            String[] empty = csv.readRow();
+            assertEquals(withoutLines.getInvoiceUuid().toString(), empty[0]);
+            assertEquals("", empty[6]);
+            assertEquals("0", empty[13]);
+            assertNull(csv.readRow());
+        }
+    }
+
+    /**
+     * Tests that each JSON Lines record parses on its own, the detailed
+     * lines nested under "items".
+     */
+    @Test
+    public void testJsonLinesParse() throws IOException {
+        String[] lines = export(ReportFormat.JSON_LINES, 3).toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        JsonObject first = JsonParser.parseString(lines[0]).getAsJsonObject();
+        assertEquals("Smith, \"Big\" Co", first.get("customerName").getAsString());
+        assertEquals("2025-03-10", first.get("date").getAsString());
+        JsonArray items = first.getAsJsonArray("items");
+        assertEquals(2, items.size());
+        assertEquals("Material", items.get(1).getAsJsonObject().get("itemType").getAsString());
+        assertEquals(withLines.calculateGrandTotalCents(), first.get("grandTotalCents").getAsLong());
+        assertEquals(0, JsonParser.parseString(lines[1]).getAsJsonObject().getAsJsonArray("items").size());
+
+        String summary = export(ReportFormat.JSON_LINES, 1).toString(StandardCharsets.UTF_8).trim();
+        assertEquals(2, JsonParser.parseString(summary).getAsJsonObject().get("itemCount").getAsInt());
+    }
+
+    private static DataInputStream binary(ByteArrayOutputStream bytes, int report) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(ReportExporter.MAGIC, in.readInt());
+        assertEquals(ReportExporter.VERSION, in.readByte());
+        assertEquals(report, in.readByte());
+        return in;
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        return in.readByte() == 0 ? null : new UUID(in.readLong(), in.readLong());
+    }
+
+    /**
+     * Tests decoding one binary record of each report, including a line
+     * whose item has no name.
+     */
+    @Test
+    public void testBinaryDecodes() throws IOException {
+        DataInputStream in = binary(export(ReportFormat.BINARY, 1), 1);
+        assertEquals(17 + 17 + 2 + customer.getName().length() + 4 + 8 + 8, in.readInt());
+        assertEquals(withLines.getInvoiceUuid(), readUuid(in));
+        assertEquals(customer.getUuid(), readUuid(in));
+        assertEquals(customer.getName(), in.readUTF());
+        assertEquals(2, in.readInt());
+        assertEquals(withLines.calculateTaxTotalCents(), in.readLong());
+        assertEquals(withLines.calculateGrandTotalCents(), in.readLong());
+        assertEquals(0, in.readInt());
+
+        in = binary(export(ReportFormat.BINARY, 2), 2);
+        in.readInt();
+        assertEquals(customer.getUuid(), readUuid(in));
+        assertEquals(customer.getName(), in.readUTF());
+        assertEquals(2, in.readInt());
+        assertEquals(12345, in.readLong());
+        assertEquals(0, in.readInt());
+
+        in = binary(export(ReportFormat.BINARY, 3), 3);
+        in.readInt();
+        assertEquals(withLines.getInvoiceUuid(), readUuid(in));
+        assertEquals(LocalDate.of(2025, 3, 10), LocalDate.ofEpochDay(in.readInt()));
+        assertEquals(customer.getUuid(), readUuid(in));
+        assertEquals(customer.getName(), in.readUTF());
+        assertEquals(sales.getUuid(), readUuid(in));
+        assertEquals("Doll, Ken", in.readUTF());
+        assertEquals(2, in.readInt());
+        assertEquals(UUID.fromString(unnamed.getUuid()), readUuid(in));
+        assertEquals(ColumnarInvoiceStore.EQUIPMENT, in.readByte());
+        assertEquals("", in.readUTF());
+        assertEquals(unnamed.getCostCents(), in.readLong());
+        assertEquals(unnamed.getTaxCents(), in.readLong());
+        readUuid(in);
+        assertEquals(ColumnarInvoiceStore.MATERIAL, in.readByte());
+        assertEquals("Sand", in.readUTF());
+        in.readLong();
+        in.readLong();
+        assertEquals(withLines.calculateSubtotalCents(), in.readLong());
+        assertEquals(withLines.calculateTaxTotalCents(), in.readLong());
+        assertEquals(withLines.calculateGrandTotalCents(), in.readLong());
+        in.readInt(); // the invoice without lines
+        assertEquals(withoutLines.getInvoiceUuid(), readUuid(in));
+    }
+}
@@ -0,0 +1,15 @@
+// ReportFormat.java
+package com.vgb;
+
+/**
+ * Machine-readable encodings the reports can be exported in; see
+ * {@link ReportExporter} for the layout of each.
+ */
+public enum ReportFormat {
+    /** Comma-separated values with a header row, one record per line. */
+    CSV,
+    /** One JSON object per line. */
+    JSON_LINES,
+    /** Length-prefixed binary records. */
+    BINARY
+}
@@ -0,0 +1,311 @@
+// ReportSnapshot.java
+package com.vgb;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Persisted per-invoice and per-customer report aggregates, so that a
+ * nightly run only has to reload the invoices that changed.
+ *
+ * Every invoice is stored with a content hash supplied by the caller (see
+ * {@link DataLoader#loadInvoiceHashes()}). A run fetches the current
+ * hashes, asks {@link #stale} which invoices are new or changed, loads
+ * just those, and hands them to {@link #apply}, which also drops invoices
+ * that have disappeared. Customer totals are patched by subtracting the
+ * old contribution and adding the new one rather than re-summed.
+ *
+ * The file is a big-endian binary: the int {@link #MAGIC}, a version byte,
+ * the invoice count, then per invoice its UUID (two longs), hash, customer
+ * UUID (presence byte and two longs), customer name, item count, subtotal,
+ * tax and grand total in cents; then the customer count and per customer
+ * its UUID, name, invoice count and grand total. Strings are written with
+ * DataOutput.writeUTF.
+ */
+public class ReportSnapshot {
+    private static final Logger log = LogManager.getLogger(ReportSnapshot.class);
+
+    /** "VGBS", the first four bytes of a snapshot file. */
+    public static final int MAGIC = 0x56474253;
+    public static final byte VERSION = 1;
+
+    /** One invoice's aggregates as of the snapshot. */
+    public static class InvoiceTotals {
+        private final UUID invoiceUuid;
+        private final String hash;
+        private final UUID customerUuid;
+        private final String customerName;
+        private final int itemCount;
+        private final long subtotalCents;
+        private final long taxTotalCents;
+        private final long grandTotalCents;
+
+        InvoiceTotals(UUID invoiceUuid, String hash, UUID customerUuid, String customerName,
+                      int itemCount, long subtotalCents, long taxTotalCents, long grandTotalCents) {
+            this.invoiceUuid = invoiceUuid;
+            this.hash = hash;
+            this.customerUuid = customerUuid;
+            this.customerName = customerName;
+            this.itemCount = itemCount;
+            this.subtotalCents = subtotalCents;
+            this.taxTotalCents = taxTotalCents;
+            this.grandTotalCents = grandTotalCents;
+        }
+
+        public UUID getInvoiceUuid() {
+            return invoiceUuid;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        /** @return the customer's UUID, or null if the invoice has none */
+        public UUID getCustomerUuid() {
+            return customerUuid;
+        }
+
+        public String getCustomerName() {
+            return customerName;
+        }
+
+        public int getItemCount() {
+            return itemCount;
+        }
+
+        public long getSubtotalCents() {
+            return subtotalCents;
+        }
+
+        public long getTaxTotalCents() {
+            return taxTotalCents;
+        }
+
+        public long getGrandTotalCents() {
+            return grandTotalCents;
+        }
+    }
+
+    /** One customer's invoice count and grand total as of the snapshot. */
+    public static class CustomerTotals {
+        private final UUID customerUuid;
+        private final String name;
+        private final int invoiceCount;
+        private final long grandTotalCents;
+
+        CustomerTotals(UUID customerUuid, String name, int invoiceCount, long grandTotalCents) {
+            this.customerUuid = customerUuid;
+            this.name = name;
+            this.invoiceCount = invoiceCount;
+            this.grandTotalCents = grandTotalCents;
+        }
+
+        public UUID getCustomerUuid() {
+            return customerUuid;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getInvoiceCount() {
+            return invoiceCount;
+        }
+
+        public long getGrandTotalCents() {
+            return grandTotalCents;
+        }
+    }
+
+    private final Map<UUID, InvoiceTotals> invoices = new LinkedHashMap<>();
+    private final Map<UUID, CustomerTotals> customers = new LinkedHashMap<>();
+
+    /**
+     * Reads a snapshot file.
+     *
+     * @return the snapshot, or an empty one if the file does not exist yet
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public static ReportSnapshot load(String filePath) throws IOException {
+        ReportSnapshot snapshot = new ReportSnapshot();
+        Path path = Paths.get(filePath);
+        if (!Files.exists(path)) {
+            log.info("No snapshot at {}, starting empty", filePath);
+            return snapshot;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                throw new IOException("Not a version " + VERSION + " report snapshot: " + filePath);
+            }
+            int invoiceCount = in.readInt();
+            for (int i = 0; i < invoiceCount; i++) {
+                UUID invoiceUuid = new UUID(in.readLong(), in.readLong());
+                String hash = in.readUTF();
+                UUID customerUuid = in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+                InvoiceTotals totals = new InvoiceTotals(invoiceUuid, hash, customerUuid, in.readUTF(),
+                        in.readInt(), in.readLong(), in.readLong(), in.readLong());
+                snapshot.invoices.put(invoiceUuid, totals);
+            }
+            int customerCount = in.readInt();
+            for (int i = 0; i < customerCount; i++) {
+                UUID customerUuid = new UUID(in.readLong(), in.readLong());
+                snapshot.customers.put(customerUuid,
+                        new CustomerTotals(customerUuid, in.readUTF(), in.readInt(), in.readLong()));
+            }
+        }
+        log.info("Loaded snapshot of {} invoices from {}", snapshot.invoices.size(), filePath);
+        return snapshot;
+    }
+
+    /**
+     * Writes the snapshot to a temporary file next to the target and moves
+     * it into place, so a crash never leaves a half-written snapshot.
+     */
+    public void save(String filePath) throws IOException {
+        Path path = Paths.get(filePath).toAbsolutePath();
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(invoices.size());
+            for (InvoiceTotals t : invoices.values()) {
+                out.writeLong(t.invoiceUuid.getMostSignificantBits());
+                out.writeLong(t.invoiceUuid.getLeastSignificantBits());
+                out.writeUTF(t.hash);
+                out.writeBoolean(t.customerUuid != null);
+                if (t.customerUuid != null) {
+                    out.writeLong(t.customerUuid.getMostSignificantBits());
+                    out.writeLong(t.customerUuid.getLeastSignificantBits());
+                }
+                out.writeUTF(t.customerName == null ? "" : t.customerName);
+                out.writeInt(t.itemCount);
+                out.writeLong(t.subtotalCents);
+                out.writeLong(t.taxTotalCents);
+                out.writeLong(t.grandTotalCents);
+            }
+            out.writeInt(customers.size());
+            for (CustomerTotals c : customers.values()) {
+                out.writeLong(c.customerUuid.getMostSignificantBits());
+                out.writeLong(c.customerUuid.getLeastSignificantBits());
+                out.writeUTF(c.name == null ? "" : c.name);
+                out.writeInt(c.invoiceCount);
+                out.writeLong(c.grandTotalCents);
+            }
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Saved snapshot of {} invoices to {}", invoices.size(), filePath);
+    }
+
+    /**
+     * @param currentHashes the content hash of every invoice that exists now
+     * @return the invoices that are new or whose hash differs from the snapshot
+     */
+    public Set<UUID> stale(Map<UUID, String> currentHashes) {
+        Set<UUID> stale = new HashSet<>();
+        for (Map.Entry<UUID, String> entry : currentHashes.entrySet()) {
+            InvoiceTotals known = invoices.get(entry.getKey());
+            if (known == null || !known.hash.equals(entry.getValue())) {
+                stale.add(entry.getKey());
+            }
+        }
+        return stale;
+    }
+
+    /**
+     * Brings the snapshot up to date: invoices missing from
+     * {@code currentHashes} are dropped, and each reloaded invoice replaces
+     * its old entry, if any, under its current hash.
+     *
+     * @param currentHashes the same hashes passed to {@link #stale}
+     * @param reloaded      the invoices {@link #stale} named, freshly loaded
+     */
+    public void apply(Map<UUID, String> currentHashes, Collection<Invoice> reloaded) {
+        List<UUID> removed = new ArrayList<>();
+        for (UUID uuid : invoices.keySet()) {
+            if (!currentHashes.containsKey(uuid)) {
+                removed.add(uuid);
+            }
+        }
+        for (UUID uuid : removed) {
+            subtract(invoices.remove(uuid));
+        }
+
+        for (Invoice invoice : reloaded) {
+            Company customer = invoice.getCustomer();
+            InvoiceTotals totals = new InvoiceTotals(invoice.getInvoiceUuid(),
+                    currentHashes.get(invoice.getInvoiceUuid()),
+                    customer == null ? null : customer.getUuid(),
+                    customer == null ? null : customer.getName(),
+                    invoice.getItems().size(),
+                    invoice.calculateSubtotalCents(),
+                    invoice.calculateTaxTotalCents(),
+                    invoice.calculateGrandTotalCents());
+            if (totals.hash == null) {
+                throw new IllegalArgumentException("No current hash for invoice " + invoice.getInvoiceUuid());
+            }
+            subtract(invoices.put(totals.invoiceUuid, totals));
+            add(totals);
+        }
+        log.info("Snapshot updated: {} removed, {} reloaded, {} invoices", removed.size(),
+                reloaded.size(), invoices.size());
+    }
+
+    private void add(InvoiceTotals t) {
+        if (t.customerUuid == null) {
+            return;
+        }
+        CustomerTotals old = customers.get(t.customerUuid);
+        customers.put(t.customerUuid, old == null
+                ? new CustomerTotals(t.customerUuid, t.customerName, 1, t.grandTotalCents)
+                : new CustomerTotals(t.customerUuid, t.customerName, old.invoiceCount + 1,
+                        old.grandTotalCents + t.grandTotalCents));
+    }
+
+    private void subtract(InvoiceTotals t) {
+        if (t == null || t.customerUuid == null) {
+            return;
+        }
+        CustomerTotals old = customers.get(t.customerUuid);
+        if (old == null) {
+            return;
+        }
+        if (old.invoiceCount <= 1) {
+            customers.remove(t.customerUuid);
+        } else {
+            customers.put(t.customerUuid, new CustomerTotals(t.customerUuid, old.name,
+                    old.invoiceCount - 1, old.grandTotalCents - t.grandTotalCents));
+        }
+    }
+
+    /** @return every invoice's aggregates, in the order they were first added */
+    public Collection<InvoiceTotals> getInvoiceTotals() {
+        return Collections.unmodifiableCollection(invoices.values());
+    }
+
+    /** @return every customer's aggregates, in order of first appearance */
+    public Collection<CustomerTotals> getCustomerTotals() {
+        return Collections.unmodifiableCollection(customers.values());
+    }
+
+    public int size() {
+        return invoices.size();
+    }
+}
@@ -0,0 +1,65 @@
+package com.vgb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+public class ReportSnapshotTests {
+
+    private static Invoice invoice(String uuid, Company customer, double cost) {
+        Contract contract = new Contract(UUID.randomUUID().toString(), "Job", customer.getUuid().toString(), cost);
+        return new Invoice(uuid, LocalDate.now(), customer, null, Arrays.asList(contract));
+    }
+
+    /**
+     * Tests that only new and changed invoices are stale, that applying
+     * them patches the customer totals, and that the snapshot survives a
+     * save and load.
+     */
+    @Test
+    public void testIncrementalUpdate() throws IOException {
+        Address address = new Address("123 Main St", "New York", "NY", "10001");
+        Company a = new Company(UUID.randomUUID().toString(), null, "Alpha", address);
+        Company b = new Company(UUID.randomUUID().toString(), null, "Beta", address);
+        String kept = UUID.randomUUID().toString();
+        String changed = UUID.randomUUID().toString();
+        String dropped = UUID.randomUUID().toString();
+        String added = UUID.randomUUID().toString();
+
+        Map<UUID, String> hashes = new HashMap<>();
+        hashes.put(UUID.fromString(kept), "h1");
+        hashes.put(UUID.fromString(changed), "h2");
+        hashes.put(UUID.fromString(dropped), "h3");
+        ReportSnapshot snapshot = new ReportSnapshot();
+        snapshot.apply(hashes, Arrays.asList(invoice(kept, a, 100), invoice(changed, a, 200), invoice(dropped, b, 400)));
+
+        File file = File.createTempFile("snapshot", ".bin");
+        file.deleteOnExit();
+        snapshot.save(file.getPath());
+        snapshot = ReportSnapshot.load(file.getPath());
+
+        hashes.remove(UUID.fromString(dropped));
+        hashes.put(UUID.fromString(changed), "h2b");
+        hashes.put(UUID.fromString(added), "h4");
+        Set<UUID> stale = snapshot.stale(hashes);
+        assertEquals(Set.of(UUID.fromString(changed), UUID.fromString(added)), stale);
+
+        snapshot.apply(hashes, Arrays.asList(invoice(changed, a, 250), invoice(added, b, 800)));
+        assertEquals(3, snapshot.size());
+        List<String> customers = new ArrayList<>();
+        for (ReportSnapshot.CustomerTotals totals : snapshot.getCustomerTotals()) {
+            customers.add(totals.getName() + " " + totals.getInvoiceCount() + " " + totals.getGrandTotalCents());
+        }
+        assertEquals(Arrays.asList("Alpha 2 35000", "Beta 1 80000"), customers);
+    }
+}
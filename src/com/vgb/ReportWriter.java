@@ -0,0 +1,208 @@
+// ReportWriter.java
+package com.vgb;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Buffered text output for the reports.
+ *
+ * Characters collect in a large buffer and reach the underlying Writer,
+ * stream or channel only when it fills or on {@link #flush()}. Columns are
+ * padded and amounts formatted by hand, producing the same text as the
+ * equivalent {@code %-Ns}, {@code %Nd} and {@code %N.2f} format specifiers
+ * without parsing a format string per call. Not thread-safe.
+ */
+public class ReportWriter implements Closeable, Flushable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Something that can render itself onto a ReportWriter. */
+    public interface Block {
+        void writeTo(ReportWriter out) throws IOException;
+    }
+
+    private final Writer out;
+    private final char[] buf;
+    private int count;
+    private final char[] digits = new char[24];
+
+    public ReportWriter(Writer out) {
+        this(out, BUFFER_SIZE);
+    }
+
+    public ReportWriter(Writer out, int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+        }
+        this.out = out;
+        this.buf = new char[bufferSize];
+    }
+
+    /** Writes UTF-8 to a stream. */
+    public ReportWriter(OutputStream out) {
+        this(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    /** Writes UTF-8 to a channel, such as a FileChannel or socket. */
+    public ReportWriter(WritableByteChannel channel) {
+        this(Channels.newWriter(channel, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Creates or truncates a file and opens it for writing.
+     *
+     * @throws IOException if the file cannot be opened
+     */
+    public static ReportWriter open(String filePath) throws IOException {
+        return new ReportWriter(FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+    }
+
+    /**
+     * Renders a block to a string; used by the entities' toString methods.
+     */
+    public static String render(Block block) {
+        StringWriter text = new StringWriter();
+        ReportWriter out = new ReportWriter(text, 256);
+        try {
+            block.writeTo(out);
+            out.flush();
+        } catch (IOException e) {
+            // a StringWriter never fails
+            throw new UncheckedIOException(e);
+        }
+        return text.toString();
+    }
+
+    /** Appends text; null is written as "null", as StringBuilder does. */
+    public ReportWriter append(String s) throws IOException {
+        if (s == null) {
+            s = "null";
+        }
+        int len = s.length();
+        if (count + len > buf.length) {
+            flushBuffer();
+            if (len > buf.length) {
+                out.write(s);
+                return this;
+            }
+        }
+        s.getChars(0, len, buf, count);
+        count += len;
+        return this;
+    }
+
+    public ReportWriter append(Object o) throws IOException {
+        return append(String.valueOf(o));
+    }
+
+    public ReportWriter append(char c) throws IOException {
+        if (count == buf.length) {
+            flushBuffer();
+        }
+        buf[count++] = c;
+        return this;
+    }
+
+    public ReportWriter newLine() throws IOException {
+        return append('\n');
+    }
+
+    public ReportWriter spaces(int n) throws IOException {
+        for (int i = 0; i < n; i++) {
+            append(' ');
+        }
+        return this;
+    }
+
+    /** Left-justifies in a column, like {@code %-Ns}; longer text is not cut. */
+    public ReportWriter padRight(Object o, int width) throws IOException {
+        String s = String.valueOf(o);
+        append(s);
+        return spaces(width - s.length());
+    }
+
+    /** Right-justifies in a column, like {@code %Ns}; longer text is not cut. */
+    public ReportWriter padLeft(Object o, int width) throws IOException {
+        String s = String.valueOf(o);
+        spaces(width - s.length());
+        return append(s);
+    }
+
+    /** Right-justified integer, like {@code %Nd}. */
+    public ReportWriter number(long value, int width) throws IOException {
+        return fixed(value, 0, width);
+    }
+
+    /** Right-justified amount in dollars with two decimals, like {@code %N.2f} of cents / 100.0. */
+    public ReportWriter money(long cents, int width) throws IOException {
+        return fixed(cents, 2, width);
+    }
+
+    /**
+     * Formats {@code value / 10^scale} with exactly {@code scale} decimals.
+     * Digits are produced from a non-positive copy so Long.MIN_VALUE needs no special case.
+     */
+    private ReportWriter fixed(long value, int scale, int width) throws IOException {
+        boolean negative = value < 0;
+        long v = negative ? value : -value;
+        int pos = digits.length;
+        int n = 0;
+        do {
+            digits[--pos] = (char) ('0' - v % 10);
+            v /= 10;
+            n++;
+            if (n == scale) {
+                digits[--pos] = '.';
+            }
+        } while (v != 0 || n <= scale);
+        if (negative) {
+            digits[--pos] = '-';
+        }
+
+        spaces(width - (digits.length - pos));
+        int len = digits.length - pos;
+        if (count + len > buf.length) {
+            flushBuffer();
+            if (len > buf.length) {
+                out.write(digits, pos, len);
+                return this;
+            }
+        }
+        System.arraycopy(digits, pos, buf, count, len);
+        count += len;
+        return this;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buf, 0, count);
+            count = 0;
+        }
+    }
+
+    /** Writes out everything buffered and flushes the target. */
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flushBuffer();
+        out.close();
+    }
+}
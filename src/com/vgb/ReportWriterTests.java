@@ -0,0 +1,66 @@
+package com.vgb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.io.StringWriter;
+
+public class ReportWriterTests {
+
+    /**
+     * Tests that hand-formatted amounts match %10.2f and %12d, including
+     * negatives, sub-dollar amounts and values wider than the column.
+     */
+    @Test
+    public void testMatchesFormat() throws IOException {
+        long[] values = {0, 5, -5, 99, 100, 12345, -12345, 789375000, 123456789012345L, Long.MIN_VALUE};
+        for (long v : values) {
+            StringWriter text = new StringWriter();
+            ReportWriter out = new ReportWriter(text);
+            out.money(v, 10).append('|').number(v, 12);
+            out.flush();
+            String expected = (v == Long.MIN_VALUE ? "-92233720368547758.08" : String.format("%10.2f", v / 100.0))
+                    + "|" + String.format("%12d", v);
+            assertEquals(expected, text.toString());
+        }
+    }
+
+    /**
+     * Tests padding, that output larger than the buffer arrives intact,
+     * including numbers wider than the buffer, and that an empty buffer is
+     * rejected.
+     */
+    @Test
+    public void testPaddingAndSmallBuffer() throws IOException {
+        StringWriter text = new StringWriter();
+        try (ReportWriter out = new ReportWriter(text, 8)) {
+            out.padRight("ab", 5).append('|').padLeft("cd", 5).append('|')
+               .padRight("longer than width", 4).append('|').spaces(10).append('|');
+        }
+        assertEquals(String.format("%-5s|%5s|%-4s|%10s|", "ab", "cd", "longer than width", ""), text.toString());
+
+        text = new StringWriter();
+        try (ReportWriter out = new ReportWriter(text, 8)) {
+            out.money(123456789, 12).number(-1234567890123L, 16);
+        }
+        assertEquals(String.format("%12.2f%16d", 1234567.89, -1234567890123L), text.toString());
+        assertThrows(IllegalArgumentException.class, () -> new ReportWriter(new StringWriter(), 0));
+    }
+
+    /**
+     * Tests that a null string is written as "null", as the report lines
+     * of an address or person with missing columns expect.
+     */
+    @Test
+    public void testNullString() throws IOException {
+        StringWriter text = new StringWriter();
+        try (ReportWriter out = new ReportWriter(text)) {
+            out.append((String) null).append('|').padRight(null, 6).append('|');
+        }
+        assertEquals("null|null  |", text.toString());
+        assertEquals(String.format("%s\n%s, %s %s", null, null, null, null),
+                new Address(null, null, null, null).toString());
+    }
+}